@@ -27,6 +27,13 @@ public class SerializableStateObservation {
      */
     public byte[] imageArray;
 
+    /**
+     * Size of the image, and bytes per pixel (3 for RGB, 1 for gray, 0 if imageArray is a PNG file)
+     */
+    public int imageWidth;
+    public int imageHeight;
+    public int imageChannels;
+
     /**
      * Indicates the state of the protocol
      */
@@ -74,6 +81,14 @@ public class SerializableStateObservation {
     public Observation[][] portalsPositions;
     public Observation[][] fromAvatarSpritesPositions;
 
+    /**
+     * Sprite observations received through the binary protocol, by id, and the lists of ids of
+     * the grid and position arrays (see readBinary).
+     */
+    private transient HashMap<Integer, Observation> receivedObservations;
+    private transient int[][] receivedGrid;
+    private transient int[][][] receivedPositions;
+
     //Default constructor.
     public SerializableStateObservation() {
         this.imageArray = null;
@@ -109,8 +124,23 @@ public class SerializableStateObservation {
     // Optional, helper method to convert a byte array to PNG format
     public void convertBytesToPng(byte[] pixels) throws IOException, DataFormatException {
         if (pixels != null) {
-            InputStream in = new ByteArrayInputStream(pixels);
-            BufferedImage bImageFromConvert = ImageIO.read(in);
+            BufferedImage bImageFromConvert;
+            if (imageChannels == 0) {
+                InputStream in = new ByteArrayInputStream(pixels);
+                bImageFromConvert = ImageIO.read(in);
+            } else {
+                // Raw pixels, row by row.
+                bImageFromConvert = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_RGB);
+                int idx = 0;
+                for (int y = 0; y < imageHeight; y++)
+                    for (int x = 0; x < imageWidth; x++) {
+                        int r = pixels[idx] & 0xFF;
+                        int g = pixels[idx + imageChannels / 3] & 0xFF;
+                        int b = pixels[idx + 2 * (imageChannels / 3)] & 0xFF;
+                        bImageFromConvert.setRGB(x, y, (r << 16) | (g << 8) | b);
+                        idx += imageChannels;
+                    }
+            }
 
             ImageIO.write(bImageFromConvert, "PNG", new File(
                 CompetitionParameters.SCREENSHOT_FILENAME));
@@ -119,6 +149,193 @@ public class SerializableStateObservation {
         }
     }
 
+    /**
+     * Reads this observation from the binary format of the learning protocol, in the
+     * order it is written by the server (see ClientComm.BINARY_SCHEMA). Sprite observations
+     * may be sent as changes from the previous observation received, which must then be given.
+     * @param in input to read from.
+     * @param previous last observation received (may be null if a keyframe is expected).
+     * @throws IOException if the input could not be read.
+     */
+    public void readBinary(DataInput in, SerializableStateObservation previous) throws IOException {
+        String name = in.readUTF();
+        phase = name.isEmpty() ? null : Phase.valueOf(name);
+        isValidation = in.readBoolean();
+        gameScore = in.readFloat();
+        gameTick = in.readInt();
+        name = in.readUTF();
+        gameWinner = name.isEmpty() ? null : Types.WINNER.valueOf(name);
+        isGameOver = in.readBoolean();
+        worldDimension = readDoubles(in);
+        blockSize = in.readInt();
+        noOfPlayers = in.readInt();
+        avatarSpeed = in.readFloat();
+        avatarOrientation = readDoubles(in);
+        avatarPosition = readDoubles(in);
+        name = in.readUTF();
+        avatarLastAction = name.isEmpty() ? null : Types.ACTIONS.valueOf(name);
+        avatarType = in.readInt();
+        avatarHealthPoints = in.readInt();
+        avatarMaxHealthPoints = in.readInt();
+        avatarLimitHealthPoints = in.readInt();
+        isAvatarAlive = in.readBoolean();
+
+        int n = in.readInt();
+        availableActions = null;
+        if (n >= 0) {
+            availableActions = new ArrayList<>(n);
+            for (int i = 0; i < n; i++)
+                availableActions.add(Types.ACTIONS.valueOf(in.readUTF()));
+        }
+
+        n = in.readInt();
+        avatarResources = null;
+        if (n >= 0) {
+            avatarResources = new HashMap<>();
+            for (int i = 0; i < n; i++)
+                avatarResources.put(in.readInt(), in.readInt());
+        }
+
+        n = in.readInt();
+        imageArray = null;
+        if (n >= 0) {
+            imageWidth = in.readInt();
+            imageHeight = in.readInt();
+            imageChannels = in.readInt();
+            imageArray = new byte[n];
+            in.readFully(imageArray);
+        }
+
+        readObservations(in, previous);
+    }
+
+    /**
+     * Reads the sprite observations, from a keyframe or as changes from the previous
+     * observation received. The state of what has been received is moved from the previous
+     * observation to this one.
+     * @param in input to read from.
+     * @param previous last observation received.
+     * @throws IOException if the input could not be read.
+     */
+    private void readObservations(DataInput in, SerializableStateObservation previous) throws IOException {
+        boolean keyframe = in.readBoolean();
+        if (keyframe) {
+            receivedObservations = new HashMap<>();
+            receivedPositions = new int[6][][];
+        } else {
+            if (previous == null || previous.receivedObservations == null)
+                throw new IOException("Observation changes received without a keyframe");
+            receivedObservations = previous.receivedObservations;
+            receivedGrid = previous.receivedGrid;
+            receivedPositions = previous.receivedPositions;
+            previous.receivedObservations = null;
+        }
+
+        int n = in.readInt();
+        for (int i = 0; i < n; i++)
+            receivedObservations.remove(in.readInt());
+
+        // Observations are replaced, not modified, so previous observations are not changed.
+        n = in.readInt();
+        for (int i = 0; i < n; i++) {
+            Observation obs = new Observation();
+            obs.obsID = in.readInt();
+            obs.category = in.readInt();
+            obs.itype = in.readInt();
+            obs.position = readVector(in);
+            obs.reference = readVector(in);
+            obs.sqDist = in.readDouble();
+            receivedObservations.put(obs.obsID, obs);
+        }
+
+        n = in.readInt();
+        observationGrid = null;
+        if (n >= 0) {
+            int m = in.readInt();
+            receivedGrid = readRows(in, n * m, keyframe ? null : receivedGrid);
+            observationGrid = new Observation[n][m][];
+            for (int i = 0; i < n; i++)
+                for (int j = 0; j < m; j++)
+                    observationGrid[i][j] = toObservations(receivedGrid[i * m + j]);
+        } else {
+            receivedGrid = null;
+        }
+
+        Observation[][][] positions = new Observation[6][][];
+        for (int k = 0; k < positions.length; k++) {
+            n = in.readInt();
+            receivedPositions[k] = readRows(in, n, receivedPositions[k]);
+            if (n >= 0) {
+                positions[k] = new Observation[n][];
+                for (int i = 0; i < n; i++)
+                    positions[k][i] = toObservations(receivedPositions[k][i]);
+            }
+        }
+        NPCPositions = positions[0];
+        immovablePositions = positions[1];
+        movablePositions = positions[2];
+        resourcesPositions = positions[3];
+        portalsPositions = positions[4];
+        fromAvatarSpritesPositions = positions[5];
+    }
+
+    /**
+     * Reads the lists of ids that changed.
+     * @param in input to read from.
+     * @param numRows number of lists (-1 if there are none).
+     * @param rows lists received before (null if all lists are sent).
+     * @return the current lists of ids.
+     * @throws IOException if the input could not be read.
+     */
+    private static int[][] readRows(DataInput in, int numRows, int[][] rows) throws IOException {
+        if (numRows < 0)
+            return null;
+        rows = (rows == null || rows.length != numRows) ? new int[numRows][] : rows.clone();
+        int numChanged = in.readInt();
+        for (int i = 0; i < numChanged; i++) {
+            int idx = in.readInt();
+            int m = in.readInt();
+            int[] ids = null;
+            if (m >= 0) {
+                ids = new int[m];
+                for (int j = 0; j < m; j++)
+                    ids[j] = in.readInt();
+            }
+            rows[idx] = ids;
+        }
+        return rows;
+    }
+
+    /**
+     * Gets the observations of a list of ids.
+     * @param ids ids of the observations (may be null).
+     * @return the observations.
+     */
+    private Observation[] toObservations(int[] ids) {
+        if (ids == null)
+            return null;
+        Observation[] row = new Observation[ids.length];
+        for (int i = 0; i < ids.length; i++)
+            row[i] = receivedObservations.get(ids[i]);
+        return row;
+    }
+
+    private static double[] readDoubles(DataInput in) throws IOException {
+        int n = in.readInt();
+        if (n < 0)
+            return null;
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++)
+            values[i] = in.readDouble();
+        return values;
+    }
+
+    private static Vector2d readVector(DataInput in) throws IOException {
+        if (!in.readBoolean())
+            return null;
+        return new Vector2d(in.readDouble(), in.readDouble());
+    }
+
     // Helper method to decompress a byte array. Used by convertBytesToPng
     public byte[] decompress(byte[] data) throws IOException, DataFormatException {
         Inflater inflater = new Inflater();
@@ -4,6 +4,7 @@ import serialization.SerializableStateObservation;
 import serialization.Types.LEARNING_SSO_TYPE;
 import utils.com.google.gson.Gson;
 
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
 
@@ -42,6 +43,22 @@ public class ClientComm {
      */
     public static String TOKEN_SEP = "#";
 
+    /**
+     * Version of the binary protocol, offered by the server in the START message.
+     */
+    public static final String BINARY_SCHEMA = "BINARY2";
+
+    /**
+     * Kinds of binary frames: a text message, or a serialized state observation.
+     */
+    public static final byte FRAME_TEXT = 0;
+    public static final byte FRAME_SSO = 1;
+
+    /**
+     * Indicates if the server offered the binary protocol.
+     */
+    private boolean binaryOffered = false;
+
     /**
      * If true, all messages sent to server are also printed to the log file
      */
@@ -98,11 +115,16 @@ public class ClientComm {
         // Continuously listen for messages
         while (line != null) {
 
-            // Read a line from System.in and save it as a String
-            line = io.readLine();
+            if (io.isBinary()) {
+                // Read and process a binary frame
+                processFrame(io.readFrame());
+            } else {
+                // Read a line from System.in and save it as a String
+                line = io.readLine();
 
-            // Process the line
-            processLine(line);
+                // Process the line
+                processLine(line);
+            }
             //io.writeToFile("line: " + line);
 
             if(sso.phase == SerializableStateObservation.Phase.START)
@@ -167,6 +189,7 @@ public class ClientComm {
             // Happens only on one-time setup
             if (json.equals("START")) {
                 this.sso.phase = SerializableStateObservation.Phase.START;
+                binaryOffered = message.length >= 3 && message[2].equals(BINARY_SCHEMA);
                 return;
             }
 
@@ -177,23 +200,62 @@ public class ClientComm {
 
             // Else, deserialize the json using GSon
             this.sso = gson.fromJson(json, SerializableStateObservation.class);
+            observationReceived();
+            // Used for debugging
+//            io.writeToFile(sso.toString());
+        } catch (Exception e){
+            io.logStackTrace(e);
+        }
+
+    }
 
-            // If expect image
-            if (lastSsoType == LEARNING_SSO_TYPE.IMAGE || lastSsoType == LEARNING_SSO_TYPE.BOTH) {
-                if ((sso.phase != SerializableStateObservation.Phase.INIT
-                    && sso.phase != SerializableStateObservation.Phase.ABORT)) {
-                    // If an image has been received, then save its PNG equivalent
-                    sso.convertBytesToPng(sso.imageArray);
+    /***
+     * Method that interprets a binary frame received from the server. It is the
+     * equivalent of processLine() for the binary protocol: the frame holds either a
+     * text message (START, FINISH) or a state observation in binary format.
+     * @param frame payload of the frame.
+     * @throws IOException
+     */
+    public void processFrame(DataInputStream frame) throws IOException {
+
+        try {
+            lastMessageId = frame.readLong();
+            byte kind = frame.readByte();
+
+            if (kind == FRAME_TEXT) {
+                String msg = frame.readUTF();
+                if (msg.equals("START")) {
+                    this.sso.phase = SerializableStateObservation.Phase.START;
+                } else if (msg.equals("FINISH")) {
+                    this.sso.phase = SerializableStateObservation.Phase.FINISH;
                 }
+                return;
             }
-            // Used for debugging
-//            io.writeToFile(sso.toString());
+
+            SerializableStateObservation received = new SerializableStateObservation();
+            received.readBinary(frame, this.sso);
+            this.sso = received;
+            observationReceived();
         } catch (Exception e){
             io.logStackTrace(e);
         }
 
     }
 
+    /**
+     * Processes a state observation just received from the server.
+     */
+    private void observationReceived() throws Exception {
+        // If expect image
+        if (lastSsoType == LEARNING_SSO_TYPE.IMAGE || lastSsoType == LEARNING_SSO_TYPE.BOTH) {
+            if ((sso.phase != SerializableStateObservation.Phase.INIT
+                && sso.phase != SerializableStateObservation.Phase.ABORT)) {
+                // If an image has been received, then save its PNG equivalent
+                sso.convertBytesToPng(sso.imageArray);
+            }
+        }
+    }
+
 
     /// Specific state functions
 
@@ -219,7 +281,17 @@ public class ClientComm {
             io.writeToServer(lastMessageId, "START_FAILED", LOG);
         }else {
             //io.writeToFile("start done");
-            io.writeToServer(lastMessageId, "START_DONE" + TOKEN_SEP + player.lastSsoType, LOG);
+            //Accept the binary protocol if offered. It is used from the next message on.
+            boolean binary = binaryOffered && CompetitionParameters.USE_BINARY_PROTOCOL;
+            io.writeToServer(lastMessageId, "START_DONE" + TOKEN_SEP + player.lastSsoType +
+                    (binary ? TOKEN_SEP + BINARY_SCHEMA : ""), LOG);
+            if (binary) {
+                try {
+                    io.startBinary();
+                } catch (IOException e) {
+                    io.logStackTrace(e);
+                }
+            }
         }
 
     }
@@ -59,5 +59,10 @@ public class CompetitionParameters
      */
     public static final int SOCKET_PORT = 8080;//3000;
 
+    /**
+     * Accept the binary protocol if the server offers it (sockets only).
+     */
+    public static final boolean USE_BINARY_PROTOCOL = true;
+
     public static String SCREENSHOT_FILENAME = "gameStateByBytes.png";
 }
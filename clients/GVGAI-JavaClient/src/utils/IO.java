@@ -1,7 +1,15 @@
 package utils;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 
 /**
@@ -19,6 +27,17 @@ public abstract class IO extends Thread{
      */
     private PrintWriter fileOutput;
 
+    /**
+     * Binary protocol. Each frame is an int with the length of the payload, followed by
+     * the payload: the message id (long), the kind of frame and its content.
+     */
+    private boolean binary;
+    private DataInputStream binIn;
+    private DataOutputStream binOut;
+    private ByteArrayOutputStream frameBytes;
+    private DataOutputStream frameOut;
+    private byte[] frameIn = new byte[1024];
+
 
     /**
      * Default constructor.
@@ -60,6 +79,66 @@ public abstract class IO extends Thread{
 
     public abstract String readLine() throws IOException;
 
+    /**
+     * Gets the stream the server writes to, for the binary protocol.
+     * @return the raw input from the server.
+     */
+    protected abstract InputStream getServerInput() throws IOException;
+
+    /**
+     * Gets the stream the server reads from, for the binary protocol.
+     * @return the raw output to the server.
+     */
+    protected abstract OutputStream getServerOutput() throws IOException;
+
+    /**
+     * Switches to the binary protocol (see ClientComm.BINARY_SCHEMA).
+     */
+    public void startBinary() throws IOException {
+        // The server doesn't send anything until it receives our reply to START,
+        // so nothing has been buffered by the text reader past that message.
+        binIn = new DataInputStream(new BufferedInputStream(getServerInput()));
+        binOut = new DataOutputStream(new BufferedOutputStream(getServerOutput()));
+        frameBytes = new ByteArrayOutputStream(64);
+        frameOut = new DataOutputStream(frameBytes);
+        binary = true;
+    }
+
+    /**
+     * Indicates if messages are being exchanged as binary frames.
+     * @return true if the binary protocol is in use.
+     */
+    public boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * Reads a binary frame from the server.
+     * @return the payload of the frame, starting with the message id and the kind of frame.
+     */
+    public DataInputStream readFrame() throws IOException {
+        int length = binIn.readInt();
+        if (length > frameIn.length)
+            frameIn = new byte[Math.max(length, frameIn.length * 2)];
+        binIn.readFully(frameIn, 0, length);
+        return new DataInputStream(new ByteArrayInputStream(frameIn, 0, length));
+    }
+
+    /**
+     * Writes a text message to the server as a binary frame.
+     * @param messageId the server is expecting.
+     * @param line to write
+     */
+    protected void writeFrame(long messageId, String line) throws IOException {
+        frameBytes.reset();
+        frameOut.writeLong(messageId);
+        frameOut.writeByte(ClientComm.FRAME_TEXT);
+        frameOut.writeUTF(line);
+        binOut.writeInt(frameBytes.size());
+        frameBytes.writeTo(binOut);
+        binOut.flush();
+    }
+
     public void logStackTrace(Exception e) {
         e.printStackTrace(this.fileOutput);
     }
@@ -43,6 +43,16 @@ public class IOPipe extends IO {
     @Override
     public void writeToServer(long messageId, String line, boolean log)
     {
+        if (isBinary()) {
+            try {
+                writeFrame(messageId, line);
+            } catch (IOException e) {
+                System.out.println("Error trying to write " + line + " to the server.");
+                e.printStackTrace();
+            }
+            if(log) this.writeToFile(messageId + ClientComm.TOKEN_SEP + line);
+            return;
+        }
         String msg = messageId + ClientComm.TOKEN_SEP + line;
         this.writeToServer(msg);
         if(log) this.writeToFile(msg);
@@ -53,6 +63,16 @@ public class IOPipe extends IO {
         return input.readLine();
     }
 
+    @Override
+    protected InputStream getServerInput() {
+        return System.in;
+    }
+
+    @Override
+    protected OutputStream getServerOutput() {
+        return System.out;
+    }
+
     /**
      * Writes a line to the server, adding a line separator at the end.
      * @param line to write
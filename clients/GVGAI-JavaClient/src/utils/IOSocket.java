@@ -64,6 +64,16 @@ public class IOSocket extends IO {
     @Override
     public void writeToServer(long messageId, String line, boolean log)
     {
+        if (isBinary()) {
+            try {
+                writeFrame(messageId, line);
+            } catch (IOException e) {
+                System.out.println("Error trying to write " + line + " to the server.");
+                e.printStackTrace();
+            }
+            if(log) this.writeToFile(messageId + ClientComm.TOKEN_SEP + line);
+            return;
+        }
         String msg = messageId + ClientComm.TOKEN_SEP + line;
         this.writeToServer(msg);
         if(log) this.writeToFile(msg);
@@ -74,6 +84,16 @@ public class IOSocket extends IO {
         return in.nextLine();
     }
 
+    @Override
+    protected InputStream getServerInput() throws IOException {
+        return socket.getInputStream();
+    }
+
+    @Override
+    protected OutputStream getServerOutput() throws IOException {
+        return socket.getOutputStream();
+    }
+
     /**
      * Writes a line to the server, adding a line separator at the end.
      * @param line to write
@@ -0,0 +1,128 @@
+package utils;
+
+import serialization.SerializableStateObservation;
+import serialization.Types;
+
+import java.io.*;
+import java.net.ConnectException;
+import java.net.Socket;
+
+/**
+ * Client of a vectorized learning server (tracks.singleLearning.VectorLearningServer on the
+ * server side), which hosts several instances (environments) of a game. The observations of
+ * all environments are received at once, and one action for each environment is sent back
+ * in each step.
+ *
+ * An observation in phase INIT is the first one of an episode, and one in phase END is the
+ * last one: the action sent for an environment after an END observation is ignored, and the
+ * next observation of that environment starts a new episode.
+ */
+public class VectorEnvClient {
+
+    /**
+     * Version of the protocol of the server.
+     */
+    public static final String VECTOR_SCHEMA = "VECTOR1";
+
+    private Socket socket;
+    private DataInputStream in;
+    private DataOutputStream out;
+    private ByteArrayOutputStream frameBytes = new ByteArrayOutputStream(256);
+    private DataOutputStream frameOut = new DataOutputStream(frameBytes);
+    private byte[] frameIn = new byte[1024];
+
+    /**
+     * Last observation received from each environment.
+     */
+    private SerializableStateObservation[] observations;
+
+    /**
+     * Connects to a server, waiting until it is available.
+     * @param hostname name of the host of the server.
+     * @param port port of the server.
+     * @return the first observation of each environment.
+     */
+    public SerializableStateObservation[] connect(String hostname, int port) throws IOException {
+        while (socket == null) {
+            try {
+                socket = new Socket(hostname, port);
+            } catch (ConnectException e) {
+                //Server not ready yet.
+            }
+        }
+        socket.setTcpNoDelay(true);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+        DataInputStream hello = readFrame();
+        String schema = hello.readUTF();
+        if (!schema.equals(VECTOR_SCHEMA))
+            throw new IOException("Unsupported protocol: " + schema);
+        observations = new SerializableStateObservation[hello.readInt()];
+        return readObservations();
+    }
+
+    /**
+     * Gets the number of environments of the server.
+     * @return the number of environments.
+     */
+    public int getNumEnvs() {
+        return observations.length;
+    }
+
+    /**
+     * Applies an action in each environment.
+     * @param actions action for each environment.
+     * @return the new observation of each environment.
+     */
+    public SerializableStateObservation[] step(Types.ACTIONS[] actions) throws IOException {
+        if (actions.length != observations.length)
+            throw new IllegalArgumentException("Expected " + observations.length + " actions");
+        frameBytes.reset();
+        frameOut.writeInt(actions.length);
+        for (Types.ACTIONS action : actions)
+            frameOut.writeUTF(action == null ? Types.ACTIONS.ACTION_NIL.toString() : action.toString());
+        sendFrame();
+        return readObservations();
+    }
+
+    /**
+     * Tells the server to finish, and closes the connection.
+     */
+    public void close() throws IOException {
+        frameBytes.reset();
+        frameOut.writeInt(-1);
+        sendFrame();
+        socket.close();
+    }
+
+    /**
+     * Reads the observations of all environments.
+     * @return the observations.
+     */
+    private SerializableStateObservation[] readObservations() throws IOException {
+        DataInputStream frame = readFrame();
+        int n = frame.readInt();
+        SerializableStateObservation[] received = new SerializableStateObservation[n];
+        for (int i = 0; i < n; i++) {
+            received[i] = new SerializableStateObservation();
+            received[i].readBinary(frame, observations[i]);
+        }
+        observations = received;
+        return received.clone();
+    }
+
+    private DataInputStream readFrame() throws IOException {
+        int length = in.readInt();
+        if (length > frameIn.length)
+            frameIn = new byte[Math.max(length, frameIn.length * 2)];
+        in.readFully(frameIn, 0, length);
+        return new DataInputStream(new ByteArrayInputStream(frameIn, 0, length));
+    }
+
+    private void sendFrame() throws IOException {
+        out.writeInt(frameBytes.size());
+        frameBytes.writeTo(out);
+        out.flush();
+    }
+}
@@ -14,6 +14,9 @@ class SerializableStateObservation:
     """
     def __init__(self):
         self.imageArray = bytearray([])
+        self.imageWidth = 0
+        self.imageHeight = 0
+        self.imageChannels = 0  # 3 for raw RGB, 1 for raw gray, 0 for PNG
         
         self.phase = Phase()
         self.isValidation = True
@@ -56,7 +59,11 @@ class SerializableStateObservation:
     def convertBytesToPng(self, pixels):
         for i, e in enumerate(pixels):
             pixels[i] = e & 0xFF
-        image = Image.open(io.BytesIO(bytearray(pixels)))
+        if self.imageChannels:
+            mode = 'RGB' if self.imageChannels == 3 else 'L'
+            image = Image.frombytes(mode, (self.imageWidth, self.imageHeight), bytes(bytearray(pixels)))
+        else:
+            image = Image.open(io.BytesIO(bytearray(pixels)))
         image.save(CompetitionParameters.SCREENSHOT_FILENAME)
 
 
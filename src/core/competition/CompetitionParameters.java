@@ -81,6 +81,27 @@ public class CompetitionParameters
      */
     public static final int SOCKET_PORT = 8080;
 
+    /**
+     * Offer the binary protocol to learning clients connected by sockets. Clients that accept
+     * it exchange length-prefixed binary frames instead of JSON lines after the start message.
+     */
+    public static final boolean BINARY_PROTOCOL = true;
+
+    /**
+     * With the binary protocol, send only the sprites that changed since the previous
+     * observation, with a full observation (keyframe) every KEYFRAME_INTERVAL observations
+     * and at the start of each game.
+     */
+    public static final boolean DELTA_OBSERVATIONS = true;
+    public static final int KEYFRAME_INTERVAL = 100;
+
+    /**
+     * Update the forward model of the game in every step by sharing the sprites of the
+     * game (copy on write) instead of copying them all. Only the sprites that change in
+     * a step are copied.
+     */
+    public static final boolean INCREMENTAL_FORWARD_MODEL = true;
+
     /**
      * Indicates if the overspend should be taken into account or not.
      *  Time limits are WALL TIME on Windows, because CPU TIME is not accurate enough
@@ -109,6 +130,20 @@ public class CompetitionParameters
      */
     public static String SCREENSHOT_FILENAME = "gameStateByBytes.png";
 
+    /**
+     * Format of the images sent to learning agents: raw RGB pixels (3 bytes per pixel),
+     * raw grayscale pixels (1 byte per pixel), or a PNG file. Frames are captured in memory.
+     */
+    public static final int IMAGE_RGB = 0;
+    public static final int IMAGE_GRAY = 1;
+    public static final int IMAGE_PNG = 2;
+    public static int IMAGE_FORMAT = IMAGE_RGB;
+
+    /**
+     * Raw images are downscaled by this factor (1 keeps the size of the screen).
+     */
+    public static int IMAGE_SCALE = 1;
+
     /**
      * Delay for human play.
      */
@@ -6,7 +6,6 @@ import java.util.Random;
 
 import core.competition.CompetitionParameters;
 import core.vgdl.VGDLFactory;
-import core.vgdl.VGDLRegistry;
 import core.vgdl.VGDLSprite;
 import core.logging.Logger;
 import core.logging.Message;
@@ -78,7 +77,7 @@ public class BasicGame extends Game {
 
 		if (obs != null) {
 			doPathf = true;
-			int obsArray[] = VGDLRegistry.GetInstance().explode(obs);
+			int obsArray[] = registry.explode(obs);
 			for (Integer it : obsArray)
 				obstacles.add(it);
 		}
@@ -194,7 +193,8 @@ public class BasicGame extends Game {
 					"No more than " + no_players + " avatar(s) allowed (Others are destroyed)."));
 			for(int i=0; i<this.spriteGroups.length; i++){
 				for(int j=no_players; j<avatars.size(); j++){
-					this.spriteGroups[i].removeSprite(avatars.get(j));
+					if (this.spriteGroups[i].removeSprite(avatars.get(j)))
+						countSprites(i, -1, avatars.get(j).is_disabled() ? -1 : 0);
 				}
 			}
 		}
@@ -242,7 +242,7 @@ public class BasicGame extends Game {
 	 *            position where the sprite will be placed
 	 */
 	public VGDLSprite addSpriteIn(String key, Vector2d position) {
-		int itype = VGDLRegistry.GetInstance().getRegisteredSpriteValue(key);
+		int itype = registry.getRegisteredSpriteValue(key);
 		return addSprite(itype, position);
 	}
 
@@ -0,0 +1,106 @@
+package core.game;
+
+import java.util.TreeSet;
+
+/**
+ * Historic of events of a game (see Event). The log is persistent: adding an event
+ * creates a new log that shares all the previous events with this one, which does
+ * not change. Forward models share the log of the state they are copied from, and
+ * only allocate the events they add themselves.
+ *
+ * Each log holds its last event and a reference to the log before it, so the most
+ * recent events are found first.
+ */
+public class EventLog
+{
+    /**
+     * Log without events.
+     */
+    public static final EventLog EMPTY = new EventLog(null, null, 0);
+
+    /**
+     * Last event of this log.
+     */
+    private final Event event;
+
+    /**
+     * Log with the events before the last one.
+     */
+    private final EventLog previous;
+
+    /**
+     * Number of events of this log.
+     */
+    private final int size;
+
+    /**
+     * Private constructor, logs are created by add().
+     * @param event last event.
+     * @param previous log with the previous events.
+     * @param size number of events.
+     */
+    private EventLog(Event event, EventLog previous, int size)
+    {
+        this.event = event;
+        this.previous = previous;
+        this.size = size;
+    }
+
+    /**
+     * Adds an event. As in a TreeSet<Event>, the event is not added if there is an
+     * equivalent one (see Event.compareTo()) in the same game step. Events must be
+     * added in the order of their game steps.
+     * @param e the event to add.
+     * @return a log with the events of this one and e (this log, if e is not added).
+     */
+    public EventLog add(Event e)
+    {
+        for(EventLog log = this; log.size > 0 && log.event.gameStep == e.gameStep; log = log.previous)
+            if(log.event.compareTo(e) == 0)
+                return this;
+        return new EventLog(e, this, size + 1);
+    }
+
+    /**
+     * Gets the number of events of this log.
+     * @return the number of events.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Creates a set with copies of the events of this log, from a given game step on.
+     * @param fromStep first game step included.
+     * @return the events, ordered asc. by game step.
+     */
+    public TreeSet<Event> toTreeSet(int fromStep)
+    {
+        TreeSet<Event> events = new TreeSet<Event>();
+        for(EventLog log = this; log.size > 0 && log.event.gameStep >= fromStep; log = log.previous)
+            events.add(log.event.copy());
+        return events;
+    }
+
+    /**
+     * Adds to a set copies of the events of this log that are not in an older version of
+     * it. Only the new events are visited.
+     * @param events set with the events of the older log.
+     * @param older log whose events are already in the set.
+     * @return true if older is a previous version of this log, so the set has now the events
+     *         of this one; false if it is not, and the set has not been modified.
+     */
+    public boolean addNewer(TreeSet<Event> events, EventLog older)
+    {
+        EventLog log = this;
+        while(log.size > older.size)
+            log = log.previous;
+        if(log != older)
+            return false;
+
+        for(log = this; log != older; log = log.previous)
+            events.add(log.event.copy());
+        return true;
+    }
+}
@@ -5,11 +5,15 @@ import java.util.*;
 
 import core.competition.CompetitionParameters;
 import core.logging.Logger;
+import core.termination.Termination;
 import core.vgdl.SpriteGroup;
+import core.vgdl.VGDLRegistry;
 import core.vgdl.VGDLSprite;
 import ontology.Types;
 import ontology.avatar.MovingAvatar;
+import ontology.effects.Effect;
 import ontology.effects.TimeEffect;
+import ontology.effects.binary.AddTimer;
 import tools.*;
 
 /**
@@ -100,12 +104,40 @@ public class ForwardModel extends Game
      */
     private ArrayList<Observation>[][] observationGrid;
 
+    /**
+     * Rank of each sprite type in the observation grid cells: observations are kept in the
+     * order in which a full update visits the sprites (inverse spriteOrder[], then sprite ID),
+     * however they were updated since.
+     */
+    private int[] observationRank;
+
+    /**
+     * Indicates if the observations include hidden sprites. This happens after the
+     * forward model is advanced (all sprites are observed from then on).
+     */
+    private boolean observeHidden;
+
+    /**
+     * Observations are updated the first time they are requested after the state changes.
+     * observationsDirty indicates that they must be updated, and fullObservationUpdate that
+     * all sprites must be checked (not only those owned by this model).
+     */
+    private boolean observationsDirty, fullObservationUpdate;
+
+    /**
+     * Events returned by getEventsHistory(), and the log they were taken from. The set is
+     * extended with the new events of the log, instead of being built again on each call.
+     */
+    private TreeSet<Event> eventsHistory;
+    private EventLog eventsHistoryLog;
+
     /**
      * Constructor for ForwardModel. Initializes everything
      * @param a_gameState
      */
     public ForwardModel(Game a_gameState, int playerID)
     {
+        super(a_gameState.registry);
         this.playerID = playerID;
 
         //All static elements of the game are assigned from the game we create the copy from.
@@ -115,24 +147,252 @@ public class ForwardModel extends Game
         init();
     }
 
+    /**
+     * Constructor for copies of a forward model (see copy()). Sprites, events and time effects
+     * are shared with a_model (copy on write), so the cost of the copy does not depend on
+     * the number of sprites. Observations are created the first time they are requested.
+     * @param a_model forward model to copy.
+     */
+    private ForwardModel(ForwardModel a_model)
+    {
+        super(a_model.registry);
+        copyFrom(a_model);
+    }
+
+    /**
+     * Makes this forward model a copy of a_model (see copy()). If this model has been used
+     * for the same game before, its arrays, lists and observation grid are reused, so
+     * recycled forward models (see StateObservation.copyInto()) allocate very little.
+     * @param a_model forward model to copy.
+     */
+    @SuppressWarnings("unchecked")
+    private void copyFrom(ForwardModel a_model)
+    {
+        int numSpriteTypes = a_model.spriteGroups.length;
+        boolean reuse = spriteGroups != null && spriteGroups.length == numSpriteTypes
+                && avatars.length == a_model.no_players && kill_list != null;
+
+        this.playerID = a_model.playerID;
+        initStatic(a_model);
+        init();
+
+        if(reuse)
+        {
+            kill_list.clear();
+            recycleObservations();
+        }else
+        {
+            kill_list = new ArrayList<VGDLSprite>();
+            shieldedEffects = newShields(numSpriteTypes);
+            spriteGroups = new SpriteGroup[numSpriteTypes];
+            avatars = new MovingAvatar[no_players];
+            observations = null;
+            observationGrid = null;
+        }
+        bucketList = a_model.bucketList; //Never filled, only cleared.
+        num_sprites = 0;
+        copySpriteCounts(a_model);
+        is_stochastic = handlingEvents = false;
+        observeHidden = false;
+
+        for(int i = 0; i < numSpriteTypes; ++i)
+        {
+            if(spriteGroups[i] == null)
+                spriteGroups[i] = a_model.spriteGroups[i].share();
+            else
+                a_model.spriteGroups[i].shareInto(spriteGroups[i]);
+            num_sprites += spriteGroups[i].numSprites();
+
+            //All sprites of a type share their features.
+            VGDLSprite first = spriteGroups[i].getFirstSprite();
+            if(first != null && isVisible(first))
+                checkSpriteFeatures(first, i);
+
+            //copy the shields
+            if(shieldedEffects[i] == null)
+                shieldedEffects[i] = new ArrayList<>();
+            else
+                shieldedEffects[i].clear();
+            copyShields(a_model.shieldedEffects[i], shieldedEffects[i]);
+        }
+
+        historicEvents = a_model.historicEvents;
+        timeEffects = a_model.timeEffects;
+        sharedTimeEffects = true;
+        a_model.sharedTimeEffects = true;
+
+        //Game state variables:
+        this.gameTick = a_model.gameTick;
+        this.tickPlayed = a_model.tickPlayed;
+        this.isEnded = a_model.isEnded;
+        this.nextSpriteID = a_model.nextSpriteID;
+
+        //Avatars change in every step, so each model gets its own avatars straight away.
+        //Avatar copies look up their sprite types, in the registry of this game.
+        spriteOwner = new Object();
+        clearOwned();
+        sharedHash = a_model.sharedHash;
+        VGDLRegistry previous = VGDLRegistry.bind(registry);
+        try {
+            for (int i = 0; i < no_players; i++) {
+                MovingAvatar a = a_model.avatars[i];
+                avatars[i] = a;
+                if(a != null) {
+                    SpriteGroup group = spriteGroups[a.getType()];
+                    ownSprite(a, group, group.indexOf(a));
+                    avatars[i].setKeyHandler(a.getKeyHandler());
+                }
+            }
+        } finally {
+            VGDLRegistry.setThreadInstance(previous);
+        }
+    }
+
 
     /**
      * Dumps the game state into 'this' object. Effectively, creates a state observation
      * from a game state (of class Game).
      * @param a_gameState game to take the state from.
      */
-    @SuppressWarnings("unchecked")
     final public void update(Game a_gameState)
+    {
+        //Avatar copies look up their sprite types, in the registry of this game.
+        VGDLRegistry previous = VGDLRegistry.bind(registry);
+        try {
+            updateFrom(a_gameState);
+        } finally {
+            VGDLRegistry.setThreadInstance(previous);
+        }
+    }
+
+    /**
+     * Updates this forward model with the game state, like update(), but sharing the
+     * sprites, events and time effects of the game instead of copying them (copy on write).
+     * From then on, both the game and this model copy a sprite before modifying it, so only
+     * the sprites that change in a step are copied.
+     * @param a_gameState game to take the state from.
+     */
+    final public void share(Game a_gameState)
+    {
+        //Avatar copies look up their sprite types, in the registry of this game.
+        VGDLRegistry previous = VGDLRegistry.bind(registry);
+        try {
+            shareFrom(a_gameState);
+        } finally {
+            VGDLRegistry.setThreadInstance(previous);
+        }
+    }
+
+    /**
+     * Shares the game state with 'this' object (see share()).
+     * @param a_gameState game to take the state from.
+     */
+    @SuppressWarnings("unchecked")
+    private void shareFrom(Game a_gameState)
     {
         int numSpriteTypes = a_gameState.spriteGroups.length;
+        if(spriteGroups == null || spriteGroups.length != numSpriteTypes || kill_list == null)
+        {
+            kill_list = new ArrayList<VGDLSprite>();
+            bucketList = new Bucket[numSpriteTypes];
+            for(int i = 0; i < numSpriteTypes; ++i)
+                bucketList[i] = new Bucket();
+            shieldedEffects = newShields(numSpriteTypes);
+            spriteGroups = new SpriteGroup[numSpriteTypes];
+        }else
+            kill_list.clear();
+        handlingEvents = false;
+        observeHidden = false;
+        observationsDirty = fullObservationUpdate = true;
+
+        //The first time the sprites of the game are shared, they are up to date.
+        if(a_gameState.spriteOwner == null)
+            for(SpriteGroup group : a_gameState.spriteGroups)
+            {
+                int numSprites = group.numSprites();
+                for(int j = 0; j < numSprites; ++j)
+                    group.getSpriteByIdx(j).idleTick = a_gameState.gameTick;
+            }
+
+        num_sprites = 0;
+        copySpriteCounts(a_gameState);
+        for(int i = 0; i < numSpriteTypes; ++i)
+        {
+            if(spriteGroups[i] == null)
+                spriteGroups[i] = a_gameState.spriteGroups[i].share();
+            else
+                a_gameState.spriteGroups[i].shareInto(spriteGroups[i]);
+            num_sprites += spriteGroups[i].numSprites();
+
+            //All sprites of a type share their features.
+            VGDLSprite first = spriteGroups[i].getFirstSprite();
+            if(first != null && isVisible(first))
+                checkSpriteFeatures(first, i);
+
+            //copy the shields
+            if(shieldedEffects[i] == null)
+                shieldedEffects[i] = new ArrayList<>();
+            else
+                shieldedEffects[i].clear();
+            copyShields(a_gameState.shieldedEffects[i], shieldedEffects[i]);
+        }
+
+        //events (the log is persistent) and time effects:
+        historicEvents = a_gameState.historicEvents;
+        timeEffects = a_gameState.timeEffects;
+        sharedTimeEffects = true;
+        a_gameState.sharedTimeEffects = true;
+
+        //Game state variables:
+        this.gameTick = a_gameState.gameTick;
+        this.tickPlayed = a_gameState.tickPlayed;
+        this.isEnded = a_gameState.isEnded;
+        this.avatarLastAction = new Types.ACTIONS[no_players];
+        System.arraycopy(a_gameState.avatarLastAction, 0, avatarLastAction, 0, no_players);
+        this.nextSpriteID = a_gameState.nextSpriteID;
+
+        //Avatars change in every step, so this model gets its own avatars straight away.
+        a_gameState.sharedHash = a_gameState.spritesHash();
+        spriteOwner = new Object();
+        clearOwned();
+        sharedHash = a_gameState.sharedHash;
+        for (int i = 0; i < no_players; i++) {
+            MovingAvatar a = a_gameState.avatars[i];
+            avatars[i] = a;
+            if(a != null) {
+                SpriteGroup group = spriteGroups[a.getType()];
+                ownSprite(a, group, group.indexOf(a));
+                avatars[i].setKeyHandler(a.getKeyHandler());
+            }
+        }
+
+        //The game keeps its avatars, and copies any other sprite before modifying it.
+        a_gameState.newSpriteOwner();
+    }
+
+    /**
+     * Dumps the game state into 'this' object (see update()).
+     * @param a_gameState game to take the state from.
+     */
+    @SuppressWarnings("unchecked")
+    private void updateFrom(Game a_gameState)
+    {
+        int numSpriteTypes = a_gameState.spriteGroups.length;
+        spriteOwner = null;
+        ownedCopies = null;
+        ownedSprites = null;
+        sharedHash = 0;
+        sharedTimeEffects = false;
+        observeHidden = false;
+        observationsDirty = fullObservationUpdate = true;
         kill_list = new ArrayList<VGDLSprite>();
         bucketList = new Bucket[numSpriteTypes];
-        historicEvents = new TreeSet<Event>();
-        shieldedEffects = new ArrayList[numSpriteTypes];
+        shieldedEffects = newShields(numSpriteTypes);
 
         //Copy of sprites from the game.
         spriteGroups = new SpriteGroup[numSpriteTypes];
         num_sprites = 0;
+        copySpriteCounts(a_gameState);
 
         for(int i = 0; i < spriteGroups.length; ++i)
         {
@@ -149,21 +409,13 @@ public class ForwardModel extends Game
             {
                 VGDLSprite sp = spriteIt.next();
                 VGDLSprite spCopy = sp.copy();
+                spCopy.setHeadless();
+                spCopy.idleTick = a_gameState.gameTick;
 
                 spriteGroups[i].addSprite(spCopy.spriteID, spCopy);
 
-                String hidden = "False";
-                if (spCopy.hidden != null) {
-                    String[] split = spCopy.hidden.split(",");
-                    if (playerID > split.length - 1)
-                        hidden = split[split.length - 1];
-                    else
-                        hidden = split[playerID];
-                }
-                if(!Boolean.parseBoolean(hidden)) {
+                if(isVisible(spCopy))
                     checkSpriteFeatures(spCopy, i);
-                    updateObservation(spCopy);
-                }
             }
 
             int nSprites = spriteGroups[i].numSprites();
@@ -171,14 +423,11 @@ public class ForwardModel extends Game
 
             //copy the shields
             shieldedEffects[i] = new ArrayList<>();
-            for(Pair p : a_gameState.shieldedEffects[i])
-                shieldedEffects[i].add(p.copy());
+            copyShields(a_gameState.shieldedEffects[i], shieldedEffects[i]);
         }
 
-        //events:
-        for (Event historicEvent : a_gameState.historicEvents) {
-            historicEvents.add(historicEvent.copy());
-        }
+        //events (the log is persistent, events are copied when requested):
+        historicEvents = a_gameState.historicEvents;
 
         //copy the time effects:
         this.timeEffects = new TreeSet<TimeEffect>();
@@ -192,12 +441,121 @@ public class ForwardModel extends Game
 
         //Game state variables:
         this.gameTick = a_gameState.gameTick;
+        this.tickPlayed = a_gameState.tickPlayed;
         this.isEnded = a_gameState.isEnded;
         this.avatarLastAction = new Types.ACTIONS[no_players];
         System.arraycopy(a_gameState.avatarLastAction, 0, avatarLastAction, 0, no_players);
         this.nextSpriteID = a_gameState.nextSpriteID;
     }
 
+    /**
+     * Creates the array of the shields of each sprite type (see Game.shieldedEffects).
+     * @param numSpriteTypes number of sprite types.
+     * @return the array, without lists.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ArrayList<Pair<Integer, Long>>[] newShields(int numSpriteTypes)
+    {
+        return new ArrayList[numSpriteTypes];
+    }
+
+    /**
+     * Copies the shields of a sprite type.
+     * @param from shields to copy.
+     * @param to list the copies are added to.
+     */
+    private static void copyShields(ArrayList<Pair<Integer, Long>> from, ArrayList<Pair<Integer, Long>> to)
+    {
+        for(Pair<Integer, Long> p : from)
+            to.add(new Pair<Integer, Long>(p.first, p.second));
+    }
+
+    /**
+     * Checks if a sprite is visible for the player of this forward model.
+     * @param sp sprite to check.
+     * @return true if the sprite is not hidden.
+     */
+    private boolean isVisible(VGDLSprite sp)
+    {
+        String hidden = "False";
+        if (sp.hidden != null) {
+            String[] split = sp.hidden.split(",");
+            if (playerID > split.length - 1)
+                hidden = split[split.length - 1];
+            else
+                hidden = split[playerID];
+        }
+        return !Boolean.parseBoolean(hidden);
+    }
+
+    /**
+     * Creates the (empty) observations and observation grid.
+     */
+    @SuppressWarnings("unchecked")
+    private void createObservations()
+    {
+        observations = new HashMap<Integer, Observation>();
+        observationGrid = new ArrayList[screenSize.width/block_size][screenSize.height/block_size];
+        for(int i = 0; i < observationGrid.length; ++i)
+            for(int j = 0; j < observationGrid[i].length; ++j)
+                observationGrid[i][j] = new ArrayList<Observation>();
+        rankObservations();
+    }
+
+    /**
+     * Computes the rank of each sprite type in the observation grid cells.
+     */
+    private void rankObservations()
+    {
+        observationRank = new int[spriteGroups.length];
+        for(int i = 0; i < spriteOrder.length; ++i)
+            observationRank[spriteOrder[i]] = spriteOrder.length - 1 - i;
+    }
+
+    /**
+     * Empties the observations and the observation grid, to be filled again with the
+     * sprites of a new state. The grid is reused, but not the observation objects: agents
+     * may still keep the observations of the previous state.
+     */
+    private void recycleObservations()
+    {
+        if(observations == null)
+            return;
+        if(observationGrid.length != screenSize.width/block_size ||
+                observationGrid[0].length != screenSize.height/block_size)
+        {
+            //Different level size, the grid can't be reused.
+            observations = null;
+            observationGrid = null;
+            return;
+        }
+        observations.clear();
+        for(int i = 0; i < observationGrid.length; ++i)
+            for(int j = 0; j < observationGrid[i].length; ++j)
+                observationGrid[i][j].clear();
+        rankObservations();
+        observationsDirty = fullObservationUpdate = true;
+    }
+
+    /**
+     * Creates or updates the observations of all sprites, if the state changed since they
+     * were last requested. Rollouts that never request them don't pay for keeping them.
+     */
+    private void buildObservations()
+    {
+        if(observations == null)
+        {
+            createObservations();
+            observationsDirty = fullObservationUpdate = true;
+        }
+
+        if(observationsDirty)
+        {
+            updateObservations(!fullObservationUpdate);
+            observationsDirty = fullObservationUpdate = false;
+        }
+    }
+
     /**
      * Updates the persistent observation of this sprite, or creates it if the
      * observation is new.
@@ -213,10 +571,13 @@ public class ForwardModel extends Game
         Observation obs = observations.get(spriteId);
         if(obs != null)
         {
-            oldPosition = obs.position;
-            Vector2d position = sprite.getPosition();
-            moved = ! obs.position.equals(position);
-            obs.position = position;
+            //Only sprites that moved need a new position.
+            moved = obs.position.x != sprite.rect.x || obs.position.y != sprite.rect.y;
+            if(moved)
+            {
+                oldPosition = obs.position;
+                obs.position = sprite.getPosition();
+            }
         }else
         {
             obs = createSpriteObservation(sprite);
@@ -232,6 +593,8 @@ public class ForwardModel extends Game
      */
     public final void removeSpriteObservation(VGDLSprite sprite)
     {
+        if(observations == null)
+            return;
         int spriteId = sprite.spriteID;
 
         Observation obs = observations.get(spriteId);
@@ -304,21 +667,43 @@ public class ForwardModel extends Game
 
         if(validX && validY)
         {
-            observationGrid[x][y].add(obs);
+            addObservationToCell(observationGrid[x][y], obs);
             if(xPlus)
-                observationGrid[x+1][y].add(obs);
+                addObservationToCell(observationGrid[x+1][y], obs);
             if(yPlus)
-                observationGrid[x][y+1].add(obs);
+                addObservationToCell(observationGrid[x][y+1], obs);
             if(xPlus && yPlus)
-                observationGrid[x+1][y+1].add(obs);
+                addObservationToCell(observationGrid[x+1][y+1], obs);
         }
     }
 
+    /**
+     * Inserts an observation in a grid cell, keeping the cell in the order of a full update
+     * of the observations (see observationRank).
+     * @param cell observations of the cell.
+     * @param obs observation to insert.
+     */
+    private void addObservationToCell(ArrayList<Observation> cell, Observation obs)
+    {
+        int rank = observationRank[obs.itype];
+        int idx = cell.size();
+        while(idx > 0)
+        {
+            Observation prev = cell.get(idx-1);
+            int prevRank = observationRank[prev.itype];
+            if(prevRank < rank || (prevRank == rank && prev.obsID < obs.obsID))
+                break;
+            idx--;
+        }
+        cell.add(idx, obs);
+    }
+
     /**
      * Prints the observation grid. For debug only.
      */
     public void printObservationGrid()
     {
+        buildObservations();
         System.out.println("#########################");
         for(int j = 0; j < observationGrid[0].length; ++j)
         {
@@ -403,16 +788,7 @@ public class ForwardModel extends Game
                 movList[itype] = true;
         }
         unknownList[itype] = true;
-
-        String hidden = "False";
-        if (sp.hidden != null) {
-            String[] split = sp.hidden.split(",");
-            if (playerID > split.length - 1)
-                hidden = split[split.length - 1];
-            else
-                hidden = split[playerID];
-        }
-        visibleList[playerID][itype] = !Boolean.parseBoolean(hidden);
+        visibleList[playerID][itype] = isVisible(sp);
     }
 
     private int getSpriteCategory(VGDLSprite sp)
@@ -449,8 +825,10 @@ public class ForwardModel extends Game
      */
     private void init()
     {
-        this.randomObs = new Random();
+        if(this.randomObs == null)
+            this.randomObs = new Random();
         this.gameTick = 0;
+        this.tickPlayed = false;
         this.isEnded = false;
     }
 
@@ -459,10 +837,34 @@ public class ForwardModel extends Game
      * effects, etc). 'this' takes these from a_gameState,
      * @param a_gameState Reference to the original game
      */
-    @SuppressWarnings("unchecked")
     private void initNonVolatile(Game a_gameState)
     {
-        //We skip this.resource_colors and sampleRandom.
+        initStatic(a_gameState);
+        this.avatars = new MovingAvatar[no_players];
+        VGDLRegistry previous = VGDLRegistry.bind(registry);
+        try {
+            for (int i = 0; i < no_players; i++) {
+                if(a_gameState.avatars[i] != null){
+                    avatars[i] = (MovingAvatar) a_gameState.avatars[i].copy();
+                    avatars[i].setHeadless();
+                    avatars[i].setKeyHandler(a_gameState.avatars[i].getKeyHandler());
+                }
+            }
+        } finally {
+            VGDLRegistry.setThreadInstance(previous);
+        }
+    }
+
+    /**
+     * Initializes the elements of a game that don't depend on its sprites (constructors,
+     * termination conditions, effects, etc). 'this' takes these from a_gameState,
+     * @param a_gameState Reference to the original game
+     */
+    private void initStatic(Game a_gameState)
+    {
+        //We skip this.resource_colors and sampleRandom. Forward models are never drawn.
+        this.registry = a_gameState.registry;
+        this.headless = true;
         this.spriteOrder = a_gameState.spriteOrder;
         this.singletons = a_gameState.singletons;
         this.classConst = a_gameState.classConst;
@@ -473,6 +875,7 @@ public class ForwardModel extends Game
         this.eosEffects = a_gameState.eosEffects;
         this.definedEOSEffects = a_gameState.definedEOSEffects;
         this.iSubTypes = a_gameState.iSubTypes;
+        this.iSuperTypes = a_gameState.iSuperTypes;
         this.charMapping = a_gameState.charMapping;
         this.terminations = a_gameState.terminations;
         this.resources_limits = a_gameState.resources_limits;
@@ -481,35 +884,41 @@ public class ForwardModel extends Game
         this.block_size = a_gameState.block_size;
         this.MAX_SPRITES = a_gameState.MAX_SPRITES;
         this.no_players = a_gameState.no_players;
+        this.keyHandler = a_gameState.keyHandler;
         this.no_counters = a_gameState.no_counters;
-        this.avatarLastAction = new Types.ACTIONS[no_players];
+        if(avatarLastAction == null || avatarLastAction.length != no_players)
+            this.avatarLastAction = new Types.ACTIONS[no_players];
         System.arraycopy(a_gameState.avatarLastAction, 0, avatarLastAction, 0, no_players);
-        this.avatars = new MovingAvatar[no_players];
-        for (int i = 0; i < no_players; i++) {
-            if(a_gameState.avatars[i] != null){
-                avatars[i] = (MovingAvatar) a_gameState.avatars[i].copy();
-                avatars[i].setKeyHandler(a_gameState.avatars[i].getKeyHandler());
-            }
-        }
-        this.counter = new int[no_counters];
+        if(counter == null || counter.length != no_counters)
+            this.counter = new int[no_counters];
         System.arraycopy(a_gameState.counter, 0, this.counter, 0, no_counters);
 
-        //create the boolean maps of sprite types.
-        npcList = new boolean[a_gameState.spriteGroups.length];
-        immList = new boolean[a_gameState.spriteGroups.length];
-        movList = new boolean[a_gameState.spriteGroups.length];
-        resList = new boolean[a_gameState.spriteGroups.length];
-        portalList  = new boolean[a_gameState.spriteGroups.length];
-        fromAvatar  = new boolean[a_gameState.spriteGroups.length];
-        unknownList = new boolean[a_gameState.spriteGroups.length];
-        visibleList = new boolean[no_players][a_gameState.spriteGroups.length];
-        playerList  = new boolean[a_gameState.spriteGroups.length];
-
-        observations = new HashMap<Integer, Observation>();
-        observationGrid = new ArrayList[screenSize.width/block_size][screenSize.height/block_size];
-        for(int i = 0; i < observationGrid.length; ++i)
-            for(int j = 0; j < observationGrid[i].length; ++j)
-                observationGrid[i][j] = new ArrayList<Observation>();
+        //create the boolean maps of sprite types (or clear them, if this model is reused).
+        int numSpriteTypes = a_gameState.spriteGroups.length;
+        if(npcList == null || npcList.length != numSpriteTypes || visibleList.length != no_players)
+        {
+            npcList = new boolean[numSpriteTypes];
+            immList = new boolean[numSpriteTypes];
+            movList = new boolean[numSpriteTypes];
+            resList = new boolean[numSpriteTypes];
+            portalList  = new boolean[numSpriteTypes];
+            fromAvatar  = new boolean[numSpriteTypes];
+            unknownList = new boolean[numSpriteTypes];
+            visibleList = new boolean[no_players][numSpriteTypes];
+            playerList  = new boolean[numSpriteTypes];
+        }else
+        {
+            Arrays.fill(npcList, false);
+            Arrays.fill(immList, false);
+            Arrays.fill(movList, false);
+            Arrays.fill(resList, false);
+            Arrays.fill(portalList, false);
+            Arrays.fill(fromAvatar, false);
+            Arrays.fill(unknownList, false);
+            for(boolean[] visible : visibleList)
+                Arrays.fill(visible, false);
+            Arrays.fill(playerList, false);
+        }
 
         this.pathf = a_gameState.pathf;
     }
@@ -553,6 +962,10 @@ public class ForwardModel extends Game
     {
         MovingAvatar a = avatars[playerID];
         if (!a.is_disabled()) {
+            //The action is written in the mask of the key handler, so the avatar needs one of its own.
+            //Avatars copied from each other share their KeyPulse handlers (see MovingAvatar.setKeyHandler()).
+            if (!(a.getKeyHandler() instanceof KeyInput))
+                a.setKeyHandler(new KeyInput());
             KeyHandler ki = a.getKeyHandler();
             ki.reset(playerID);
             ki.setAction(action, a.getPlayerID());
@@ -570,22 +983,7 @@ public class ForwardModel extends Game
      * Doesn't update disabled sprites.
      */
     protected void tick() {
-        for(int i = spriteOrder.length-1; i >= 0; --i)
-        {
-            int spriteTypeInt = spriteOrder[i];
-
-            Iterator<VGDLSprite> spriteIt = spriteGroups[spriteTypeInt].getSpriteIterator();
-            if(spriteIt != null) while(spriteIt.hasNext())
-            {
-                VGDLSprite sp = spriteIt.next();
-
-                if(!(sp instanceof MovingAvatar) && ! sp.is_disabled())
-                {
-                    sp.preMovement();
-                    sp.update(this);
-                }
-            }
-        }
+        tickSprites();
     }
 
 
@@ -595,12 +993,18 @@ public class ForwardModel extends Game
      */
     final public void advance(Types.ACTIONS action) {
         if(!isEnded) {
-            //apply player action
-            updateAvatars(action, 0);
-            //update all the other sprites
-            tick();
-            //update game state
-            advance_aux();
+            //Sprites created in this step look up their sprite types, in the registry of this game.
+            VGDLRegistry previous = VGDLRegistry.bind(registry);
+            try {
+                //apply player action
+                updateAvatars(action, 0);
+                //update all the other sprites
+                tick();
+                //update game state
+                advance_aux();
+            } finally {
+                VGDLRegistry.setThreadInstance(previous);
+            }
         }
     }
 
@@ -612,15 +1016,21 @@ public class ForwardModel extends Game
     final public void advance(Types.ACTIONS[] actions) {
 
         if(!isEnded) {
-            //apply actions of all players
-            for (int i = 0; i < actions.length; i++) {
-                Types.ACTIONS a = actions[i]; // action
-                updateAvatars(a, i); // index in array actions is the playerID
+            //Sprites created in this step look up their sprite types, in the registry of this game.
+            VGDLRegistry previous = VGDLRegistry.bind(registry);
+            try {
+                //apply actions of all players
+                for (int i = 0; i < actions.length; i++) {
+                    Types.ACTIONS a = actions[i]; // action
+                    updateAvatars(a, i); // index in array actions is the playerID
+                }
+                //update all other sprites in the game
+                tick();
+                //update game state
+                advance_aux();
+            } finally {
+                VGDLRegistry.setThreadInstance(previous);
             }
-            //update all other sprites in the game
-            tick();
-            //update game state
-            advance_aux();
         }
         //System.out.println(isMultiGameOver());
     }
@@ -633,25 +1043,36 @@ public class ForwardModel extends Game
         clearAll(this);
         terminationHandling();
         checkTimeOut();
-        updateAllObservations();
+        //If hidden sprites were already observed, only the sprites this model modified can change.
+        if(!observeHidden || spriteOwner == null)
+            fullObservationUpdate = true;
+        observeHidden = true;
+        observationsDirty = true;
         gameTick++;
+        tickPlayed = false;
     }
 
     /**
-     * Updates all observations of this class.
+     * Updates the observations of the (visible, unless observeHidden) sprites of this class.
+     * Sprites shared with other forward models have not changed since they were shared,
+     * so they can be skipped if their observations are already up to date. Killed sprites
+     * are removed from the observations in clearAll().
+     * @param onlyOwned true to update only the sprites owned by this model.
      */
-    private void updateAllObservations() {
+    private void updateObservations(boolean onlyOwned) {
         //Now, update all others (but avatar).
         int typeIndex = spriteOrder.length-1;
         for(int i = typeIndex; i >=0; --i)   //For update, opposite order than drawing.
         {
             int spriteTypeInt = spriteOrder[i];
 
-            Iterator<VGDLSprite> spriteIt = spriteGroups[spriteTypeInt].getSpriteIterator();
-            if(spriteIt != null) while(spriteIt.hasNext())
+            ArrayList<VGDLSprite> sprites = spriteGroups[spriteTypeInt].getSprites();
+            int numSprites = sprites.size();
+            for(int j = 0; j < numSprites; ++j)
             {
-                VGDLSprite sp = spriteIt.next();
-                updateObservation(sp);
+                VGDLSprite sp = sprites.get(j);
+                if((!onlyOwned || sp.owner == spriteOwner) && (observeHidden || isVisible(sp)))
+                    updateObservation(sp);
             }
         }
     }
@@ -661,11 +1082,151 @@ public class ForwardModel extends Game
      * @return the copy of this forward model.
      */
     final public ForwardModel copy() {
-        ForwardModel copyObs = new ForwardModel(this, this.playerID);
-        copyObs.update(this);
+        return copyInto(null);
+    }
+
+    /**
+     * Makes a forward model a copy of this one, reusing its arrays and observations
+     * (see copyFrom()). The previous state of the target is lost.
+     * @param target forward model to overwrite, or null to create a new one.
+     * @return the copy of this forward model (target, if it is not null).
+     */
+    final public ForwardModel copyInto(ForwardModel target) {
+        if(target == this)
+            return this;
+
+        //All the sprites are shared from now on (the copy takes sharedHash too).
+        sharedHash = spritesHash();
+        ForwardModel copyObs;
+        if(target == null)
+            copyObs = new ForwardModel(this);
+        else
+        {
+            copyObs = target;
+            copyObs.copyFrom(this);
+        }
+
+        //Sprites modified since the last update of the observations won't be owned anymore.
+        if(observationsDirty)
+            fullObservationUpdate = true;
+
+        //From now on, sprites are shared with the copy: this model needs a new token to modify them.
+        newSpriteOwner();
         return copyObs;
     }
 
+    /**
+     * Gives this forward model, and the copies made from it from now on, their own copies
+     * of the effects and terminations of the game. Some of them keep the outcome of their
+     * last call in fields (e.g. Effect.applyScore), so forward models advanced in different
+     * threads must not share them.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    final void ownRules()
+    {
+        IdentityHashMap<Effect, Effect> copies = new IdentityHashMap<Effect, Effect>();
+
+        ArrayList<Effect>[][] ownCollisionEffects = new ArrayList[collisionEffects.length][];
+        for(int i = 0; i < collisionEffects.length; ++i)
+        {
+            ownCollisionEffects[i] = new ArrayList[collisionEffects[i].length];
+            for(int j = 0; j < collisionEffects[i].length; ++j)
+                ownCollisionEffects[i][j] = copyEffects(collisionEffects[i][j], copies);
+        }
+        collisionEffects = ownCollisionEffects;
+
+        ArrayList<Effect>[] ownEosEffects = new ArrayList[eosEffects.length];
+        for(int i = 0; i < eosEffects.length; ++i)
+            ownEosEffects[i] = copyEffects(eosEffects[i], copies);
+        eosEffects = ownEosEffects;
+
+        //Time effects are copied on write, but their copies share the delegates.
+        ownTimeEffects();
+        for(TimeEffect tef : timeEffects)
+            copyDelegates(tef, copies);
+
+        ArrayList<Termination> ownTerminations = new ArrayList<Termination>(terminations.size());
+        for(Termination t : terminations)
+            ownTerminations.add(t.clone());
+        terminations = ownTerminations;
+    }
+
+    /**
+     * Copies a list of effects (see ownRules()).
+     * @param effects effects to copy.
+     * @param copies copies already made of each effect, so effects in several lists are copied once.
+     * @return the list with the copies.
+     */
+    private static ArrayList<Effect> copyEffects(ArrayList<Effect> effects, IdentityHashMap<Effect, Effect> copies)
+    {
+        ArrayList<Effect> own = new ArrayList<Effect>(effects.size());
+        for(Effect ef : effects)
+            own.add(copyEffect(ef, copies));
+        return own;
+    }
+
+    /**
+     * Copies an effect, and the effects it delegates on (see ownRules()).
+     * @param ef effect to copy.
+     * @param copies copies already made of each effect.
+     * @return the copy of the effect.
+     */
+    private static Effect copyEffect(Effect ef, IdentityHashMap<Effect, Effect> copies)
+    {
+        if(ef == null)
+            return null;
+        Effect copy = copies.get(ef);
+        if(copy == null)
+        {
+            copy = ef.clone();
+            copies.put(ef, copy);
+            if(copy instanceof TimeEffect)
+                copyDelegates((TimeEffect) copy, copies);
+        }
+        return copy;
+    }
+
+    /**
+     * Replaces the effects a time effect delegates on with their copies (see ownRules()).
+     * @param tef time effect.
+     * @param copies copies already made of each effect.
+     */
+    private static void copyDelegates(TimeEffect tef, IdentityHashMap<Effect, Effect> copies)
+    {
+        tef.delegate = copyEffect(tef.delegate, copies);
+        if(tef instanceof AddTimer)
+            ((AddTimer) tef).timerDelegate = copyEffect(((AddTimer) tef).timerDelegate, copies);
+    }
+
+    /**
+     * Returns a hash of the current state of the game: the type, position, orientation,
+     * health points and resources of all sprites, the score and win state of the avatars,
+     * the game counters, the time effects pending (with the ticks left until they are
+     * executed) and whether the game is over. The hash of the sprites is maintained
+     * incrementally: only the sprites modified since this model was copied are hashed.
+     *
+     * Not included: the game tick, so the same state reached through different sequences
+     * of actions has the same hash (even if it makes a Timeout termination closer), and
+     * the previous positions of the sprites, the random generator and the events history.
+     * Different states can have the same hash, although it is very unlikely.
+     * @return the hash of the state.
+     */
+    public long stateHash() {
+        long hash = Utils.hashMix(spritesHash(), isEnded ? 1 : 0);
+        for(int i = 0; i < no_counters; ++i)
+            hash = Utils.hashMix(hash, counter[i]);
+
+        //Time effects are added up, so their order doesn't matter.
+        long timeHash = 0;
+        for(TimeEffect ef : timeEffects)
+        {
+            long efHash = Utils.hashMix(ef.itype, ef.nextExecution - gameTick);
+            efHash = Utils.hashMix(efHash, ef.delegate.hashCode);
+            timeHash += Utils.hashMix(efHash, ef.repeating ? ef.timer : -1);
+        }
+        return Utils.hashMix(hash, timeHash);
+    }
+
     /**
      * Gets the game score of this state.
      * @return the game score.
@@ -963,6 +1524,7 @@ public class ForwardModel extends Game
         if(numDiffTypes == 0)
             return null; //Wait, no types? no sprites of this group then.
 
+        buildObservations();
         ArrayList<Observation>[] observations = new ArrayList[numDiffTypes];
         Vector2d reference = refPosition;
         if(refPosition == null)
@@ -999,22 +1561,150 @@ public class ForwardModel extends Game
         return observations;
     }
 
+    /**
+     * Finds the observations of a category closest to a reference position, searching the
+     * observation grid in rings of cells around the reference. Only the cells that can
+     * contain one of the closest observations are visited, and no list is sorted.
+     * Sprites that are not in the observation grid (out of the level) are not found.
+     * @param category category of the observations (see Types.TYPE_*), or -1 for any.
+     * @param reference reference position.
+     * @param k maximum number of observations to find.
+     * @param maxSqDist maximum square distance from the reference to the observations.
+     * @return the observations found, ordered asc. by distance to the reference.
+     */
+    private ArrayList<Observation> getClosestObservations(int category, Vector2d reference, int k, double maxSqDist)
+    {
+        buildObservations();
+        ArrayList<Observation> closest = new ArrayList<Observation>();
+        if(k <= 0)
+            return closest;
+        int width = observationGrid.length, height = observationGrid[0].length;
+        int cx = Math.max(0, Math.min(width-1, (int) reference.x / block_size));
+        int cy = Math.max(0, Math.min(height-1, (int) reference.y / block_size));
+        int maxRing = Math.max(Math.max(cx, width-1-cx), Math.max(cy, height-1-cy));
+
+        for(int r = 0; r <= maxRing; ++r)
+        {
+            for(int x = cx - r; x <= cx + r; ++x)
+            {
+                if(x < 0 || x >= width) continue;
+                //Only the first and last rows of the ring, except for its first and last columns.
+                int step = (x == cx - r || x == cx + r) ? 1 : Math.max(1, 2*r);
+                for(int y = cy - r; y <= cy + r; y += step)
+                {
+                    if(y < 0 || y >= height) continue;
+                    ArrayList<Observation> cell = observationGrid[x][y];
+                    for(int i = 0; i < cell.size(); ++i)
+                    {
+                        Observation obs = cell.get(i);
+                        //Observations that occupy several cells are only taken from their first one.
+                        if((category != -1 && obs.category != category) ||
+                                (int) obs.position.x / block_size != x || (int) obs.position.y / block_size != y)
+                            continue;
+                        double sqDist = obs.position.sqDist(reference);
+                        if(sqDist <= maxSqDist)
+                            insertClosest(closest, obs, sqDist, reference, k);
+                    }
+                }
+            }
+
+            //Cells out of this ring are, at least, r-1 cells away from the reference.
+            double bound = Math.max(0, r - 1) * block_size;
+            bound *= bound;
+            if(bound > maxSqDist || (closest.size() == k &&
+                    closest.get(k-1).position.sqDist(reference) <= bound))
+                break;
+        }
+        return closest;
+    }
+
+    /**
+     * Inserts an observation in a list ordered asc. by distance to a reference, keeping
+     * only the first k observations. Ties are broken by observation id.
+     * @param closest list of observations.
+     * @param obs observation to insert.
+     * @param sqDist square distance from the observation to the reference.
+     * @param reference reference position.
+     * @param k maximum size of the list.
+     */
+    private static void insertClosest(ArrayList<Observation> closest, Observation obs, double sqDist,
+                                      Vector2d reference, int k)
+    {
+        int idx = closest.size();
+        while(idx > 0)
+        {
+            Observation prev = closest.get(idx-1);
+            double prevSqDist = prev.position.sqDist(reference);
+            if(prevSqDist < sqDist || (prevSqDist == sqDist && prev.obsID < obs.obsID))
+                break;
+            idx--;
+        }
+        if(idx >= k)
+            return;
+        if(closest.size() == k)
+            closest.remove(k-1);
+        closest.add(idx, obs);
+    }
+
+    /**
+     * Returns the k observations of a category closest to a reference position.
+     * @param category category of the observations (see Types.TYPE_*), or -1 for any.
+     * @param reference reference position.
+     * @param k number of observations.
+     * @return up to k observations, ordered asc. by distance to the reference.
+     */
+    public ArrayList<Observation> getNearestObservations(int category, Vector2d reference, int k)
+    {
+        return getClosestObservations(category, reference, k, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Returns the observations of a category within a distance of a reference position.
+     * @param category category of the observations (see Types.TYPE_*), or -1 for any.
+     * @param reference reference position.
+     * @param radius maximum distance (in pixels) from the reference.
+     * @return the observations found, ordered asc. by distance to the reference.
+     */
+    public ArrayList<Observation> getObservationsWithin(int category, Vector2d reference, double radius)
+    {
+        return getClosestObservations(category, reference, Integer.MAX_VALUE, radius * radius);
+    }
+
     /**
      * Returns a grid with all observations in the level.
      * @return the grid of observations
      */
     public ArrayList<Observation>[][] getObservationGrid()
     {
+        buildObservations();
         return observationGrid;
     }
 
     /**
-     * Returns the list of historic events happened in this game so far.
+     * Returns the list of historic events happened in this game so far. The list is kept
+     * by this model, and only the events added since the last call are copied to it, so
+     * it must not be modified. Building it the first time visits the whole history: agents
+     * that only need recent events should use getEventsHistory(int).
      * @return list of historic events happened in this game so far.
      */
     public TreeSet<Event> getEventsHistory()
     {
-        return historicEvents;
+        if(eventsHistory == null || !historicEvents.addNewer(eventsHistory, eventsHistoryLog))
+            eventsHistory = historicEvents.toTreeSet(Integer.MIN_VALUE);
+        eventsHistoryLog = historicEvents;
+        return eventsHistory;
+    }
+
+    /**
+     * Returns the list of historic events happened in the last game steps. Only these
+     * events are visited, so the cost does not depend on the length of the game.
+     * @param numSteps number of game steps.
+     * @return list of historic events happened in the last numSteps game steps played.
+     */
+    public TreeSet<Event> getEventsHistory(int numSteps)
+    {
+        int lastStep = tickPlayed ? gameTick : gameTick - 1;
+        return historicEvents.toTreeSet(lastStep - numSteps + 1);
     }
 
     /**
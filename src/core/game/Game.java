@@ -103,9 +103,10 @@ public abstract class Game {
 
 	/**
 	 * Historic of events related to the avatar happened during the game. The
-	 * entries are ordered asc. by game step.
+	 * log is persistent, so it is shared with the forward models copied from
+	 * this game.
 	 */
-	protected TreeSet<Event> historicEvents;
+	protected EventLog historicEvents;
 
 	/**
 	 * For each entry, int identifier of sprite type, a list with all the itypes
@@ -113,6 +114,19 @@ public abstract class Game {
 	 */
 	protected ArrayList<Integer>[] iSubTypes;
 
+	/**
+	 * For each entry, int identifier of sprite type, the itypes that have
+	 * this sprite type in their iSubTypes list.
+	 */
+	protected int[][] iSuperTypes;
+
+	/**
+	 * Number of sprites, and of disabled sprites, of each type and all its
+	 * subtypes (see getNumSprites() and getNumDisabledSprites()).
+	 */
+	protected int[] numSpritesOfType;
+	protected int[] numDisabledOfType;
+
 	/**
 	 * For each entry, int identifier of sprite type, a list with all the itypes
 	 * this sprite belongs to.
@@ -174,6 +188,13 @@ public abstract class Game {
 	 */
 	protected int gameTick;
 
+	/**
+	 * Indicates if the game step of gameTick has already been played (this is the state
+	 * after it), or not (this is the state before it). It marks the last step of the
+	 * events history (see ForwardModel.getEventsHistory(int)).
+	 */
+	protected boolean tickPlayed;
+
 	/**
 	 * Handling when the window is closed
 	 */
@@ -199,6 +220,87 @@ public abstract class Game {
 	 */
 	protected ForwardModel fwdModel;
 
+	/**
+	 * Indicates if this game is never drawn, like forward models and games run
+	 * without visuals. The sprites of headless games keep no images or animations
+	 * (see VGDLSprite.setHeadless()).
+	 */
+	protected boolean headless;
+
+	/**
+	 * Copy-on-write token of this game. Sprites whose owner is this token can be
+	 * modified in place. Any other sprite is shared with other forward models, and
+	 * it must be copied before being modified (see ownSprite()). Null if all the
+	 * sprites of this game belong to it.
+	 */
+	protected Object spriteOwner;
+
+	/**
+	 * Copies created by ownSprite() for the current spriteOwner, indexed by the
+	 * shared sprite they replace.
+	 */
+	protected IdentityHashMap<VGDLSprite, VGDLSprite> ownedCopies;
+
+	/**
+	 * Sprites that belong to the current spriteOwner (copies and new sprites), and
+	 * sum of the state hashes (see VGDLSprite.stateHash()) of the shared sprites of
+	 * this game. Shared sprites can't change, so the state hash of the game only
+	 * needs to add up the hashes of the sprites it owns (see ForwardModel.stateHash()).
+	 */
+	protected Set<VGDLSprite> ownedSprites;
+	protected long sharedHash;
+
+	/**
+	 * Indicates if the time effects are shared with other forward models. Shared
+	 * collections are copied before being modified.
+	 */
+	protected boolean sharedTimeEffects;
+
+	/**
+	 * True while the events of this game step are being handled.
+	 */
+	protected boolean handlingEvents;
+
+	/**
+	 * Effects that act only once per step on each sprite, and the sprites that
+	 * triggered them in the current step (see triggerOncePerStep()). This is kept
+	 * by each game, as effects are shared by all the forward models of the game.
+	 */
+	private ArrayList<Effect> stepEffects;
+	private ArrayList<VGDLSprite> stepSprites;
+
+	/**
+	 * Number of times whole sprite groups have been requested while handling events.
+	 */
+	private int groupQueries;
+
+	/**
+	 * Minimum number of sprites in both sides of a collision to use the broad phase.
+	 */
+	private static final int BROAD_PHASE_MIN_SPRITES = 8;
+
+	/**
+	 * Broad phase for collisions. It is only used inside eventHandling(), so all games
+	 * of the same thread can share it.
+	 */
+	private static final ThreadLocal<SpatialHash> collisionHash = new ThreadLocal<SpatialHash>();
+
+	/**
+	 * Lists of the sprites that may collide, of their positions in the broad phase and of
+	 * the rectangles of the second sprites of each pair, reused by eventHandling() like
+	 * the broad phase itself (see collisionHash).
+	 */
+	private static final class CollisionLists {
+		final ArrayList<VGDLSprite> firstx = new ArrayList<VGDLSprite>();
+		final ArrayList<VGDLSprite> secondx = new ArrayList<VGDLSprite>();
+		final ArrayList<VGDLSprite> new_secondx = new ArrayList<VGDLSprite>();
+		int[] collided = new int[16];
+		int[] firstInSecond = new int[16];
+		final SpriteStore secondStore = new SpriteStore();
+	}
+
+	private static final ThreadLocal<CollisionLists> collisionLists = new ThreadLocal<CollisionLists>();
+
 	/**
 	 * Maximum number of sprites in a game.
 	 */
@@ -256,15 +358,41 @@ public abstract class Game {
 	public static KeyHandler ki;
 
 	/**
-	 * Default constructor.
+	 * Key handler of the avatars of this game. Each game has its own one, so games played
+	 * at the same time don't overwrite each other's keys. ki is the key handler of the last
+	 * game parsed or played, read by the human agents.
+	 */
+	protected KeyHandler keyHandler;
+
+	/**
+	 * Registry of the sprite types of this game: the one it was parsed with.
+	 * Forward models of the game share it.
+	 */
+	protected VGDLRegistry registry;
+
+	/**
+	 * Default constructor. The game uses the current registry (see
+	 * VGDLRegistry.GetInstance()).
 	 */
 	public Game() {
+		this(VGDLRegistry.GetInstance());
+	}
+
+	/**
+	 * Constructor for a game that uses a given registry of sprite types.
+	 *
+	 * @param registry
+	 *            registry of the sprite types of the game.
+	 */
+	protected Game(VGDLRegistry registry) {
+		this.registry = registry;
+
 		// data structures to hold the game definition.
 		definedEffects = new ArrayList<Pair<Integer, Integer>>();
 		definedEOSEffects = new ArrayList<Integer>();
 		charMapping = new HashMap<Character, ArrayList<String>>();
 		terminations = new ArrayList<Termination>();
-		historicEvents = new TreeSet<Event>();
+		historicEvents = EventLog.EMPTY;
 		timeEffects = new TreeSet<TimeEffect>();
 
 		// Game attributes:
@@ -283,8 +411,8 @@ public abstract class Game {
 	public void loadDefaultConstr() {
 		// If more elements are added here, initSprites() must be modified
 		// accordingly!
-		VGDLRegistry.GetInstance().registerSprite("wall");
-		VGDLRegistry.GetInstance().registerSprite("avatar");
+		registry.registerSprite("wall");
+		registry.registerSprite("avatar");
 	}
 
 	/**
@@ -307,8 +435,8 @@ public abstract class Game {
 	public void changeSpriteOrder(ArrayList<Integer> spOrder){
 		spriteOrder = new int[spOrder.size()];
 		// We need here the default 2 sprites:
-		avatarId = VGDLRegistry.GetInstance().getRegisteredSpriteValue("avatar");
-		wallId = VGDLRegistry.GetInstance().getRegisteredSpriteValue("wall");
+		avatarId = registry.getRegisteredSpriteValue("avatar");
+		wallId = registry.getRegisteredSpriteValue("wall");
 
 		// 1. "avatar" ALWAYS at the end of the array.
 		for (int i = 0; i < no_players; i++) {
@@ -339,21 +467,21 @@ public abstract class Game {
 		ArrayList<Resource> resources = new ArrayList<Resource>();
 
 		// We need here the default 2 sprites:
-		avatarId = VGDLRegistry.GetInstance().getRegisteredSpriteValue("avatar");
-		wallId = VGDLRegistry.GetInstance().getRegisteredSpriteValue("wall");
+		avatarId = registry.getRegisteredSpriteValue("avatar");
+		wallId = registry.getRegisteredSpriteValue("wall");
 
 		// Initialize the sprite render order.
 		this.changeSpriteOrder(spOrder);
 
 		// Singletons
-		singletons = new boolean[VGDLRegistry.GetInstance().numSpriteTypes()];
+		singletons = new boolean[registry.numSpriteTypes()];
 		for (Integer intId : sings) {
 			singletons[intId] = true;
 		}
 
 		// Constructors, as many as number of sprite types, so they are accessed
 		// by its id:
-		classConst = new Content[VGDLRegistry.GetInstance().numSpriteTypes()];
+		classConst = new Content[registry.numSpriteTypes()];
 		templateSprites = new VGDLSprite[classConst.length];
 
 		// By default, we have 2 constructors:
@@ -420,6 +548,21 @@ public abstract class Game {
 		if (!iSubTypes[avatarId].contains(avatarId))
 			iSubTypes[avatarId].add(avatarId);
 
+		// Inverse of the subtypes lists, to count the sprites of each type.
+		int[] numSuperTypes = new int[classConst.length];
+		for (int j = 0; j < iSubTypes.length; ++j)
+			for (Integer subtype : iSubTypes[j])
+				numSuperTypes[subtype]++;
+		iSuperTypes = new int[classConst.length][];
+		for (int j = 0; j < iSuperTypes.length; ++j)
+			iSuperTypes[j] = new int[numSuperTypes[j]];
+		Arrays.fill(numSuperTypes, 0);
+		for (int j = 0; j < iSubTypes.length; ++j)
+			for (Integer subtype : iSubTypes[j])
+				iSuperTypes[subtype][numSuperTypes[subtype]++] = j;
+		numSpritesOfType = new int[classConst.length];
+		numDisabledOfType = new int[classConst.length];
+
 		// Resources: use the list of resources created before to store limit
 		// and color of each resource.
 		for (int i = 0; i < resources.size(); ++i) {
@@ -479,7 +622,7 @@ public abstract class Game {
 			}
 
 			if (isLeafNode(current)) {
-				result.add(VGDLRegistry.GetInstance().getRegisteredSpriteKey(current));
+				result.add(registry.getRegisteredSpriteKey(current));
 			} else {
 				SpriteContent sc = (SpriteContent) classConst[current];
 				for(int s:sc.subtypes){
@@ -557,8 +700,8 @@ public abstract class Game {
 		data.name = sc.identifier;
 		data.type = sc.referenceClass;
 		for(int pIndex:sc.itypes){
-		    if( VGDLRegistry.GetInstance().getRegisteredSpriteValue(data.name) != pIndex){
-			data.parents.add(VGDLRegistry.GetInstance().getRegisteredSpriteKey(pIndex));
+		    if( registry.getRegisteredSpriteValue(data.name) != pIndex){
+			data.parents.add(registry.getRegisteredSpriteKey(pIndex));
 		    }
 		}
 
@@ -584,7 +727,7 @@ public abstract class Game {
 		ArrayList<String> dependentSprites = sprite.getDependentSprites();
 		for (String s : dependentSprites) {
 			ArrayList<String> expandedSprites = expandNonLeafNode(
-					VGDLRegistry.GetInstance().getRegisteredSpriteValue(s));
+					registry.getRegisteredSpriteValue(s));
 			data.sprites.addAll(expandedSprites);
 		}
 
@@ -615,7 +758,7 @@ public abstract class Game {
 	 * @return a temproary avatar sprite
 	 */
 	public VGDLSprite getTempAvatar(SpriteData sprite) {
-		avatarId = VGDLRegistry.GetInstance().getRegisteredSpriteValue(sprite.name);
+		avatarId = registry.getRegisteredSpriteValue(sprite.name);
 		if (((SpriteContent) classConst[avatarId]).referenceClass != null) {
 			VGDLSprite result = VGDLFactory.GetInstance().createSprite(this, (SpriteContent) classConst[avatarId],
 					new Vector2d(), new Dimension(1, 1));
@@ -646,7 +789,7 @@ public abstract class Game {
 
 			ArrayList<String> sprites = tr.getTerminationSprites();
 			for (String s : sprites) {
-				int itype = VGDLRegistry.GetInstance().getRegisteredSpriteValue(s);
+				int itype = registry.getRegisteredSpriteValue(s);
 				if (isLeafNode(itype)) {
 					td.sprites.add(s);
 				} else {
@@ -723,6 +866,8 @@ public abstract class Game {
 	 */
 	public void reset() {
 		num_sprites = 0;
+		Arrays.fill(numSpritesOfType, 0);
+		Arrays.fill(numDisabledOfType, 0);
 
 		for (int i = 0; i < no_players; i++) {
 			avatars[i] = null;
@@ -732,6 +877,7 @@ public abstract class Game {
 		}
 		isEnded = false;
 		gameTick = -1;
+		tickPlayed = false;
 		disqualified = false;
 		avatarLastAction = new Types.ACTIONS[no_players];
 		for (int i = 0; i < no_players; i++)
@@ -754,7 +900,13 @@ public abstract class Game {
 			templateSprites[i] = null;
 		}
 
-		historicEvents.clear();
+		historicEvents = EventLog.EMPTY;
+
+		// The sprites of the new level belong to this game, and can be drawn.
+		headless = false;
+		spriteOwner = null;
+		ownedCopies = null;
+		ownedSprites = null;
 
 		resetShieldEffects();
 	}
@@ -785,13 +937,12 @@ public abstract class Game {
 
 		factory.parseParameters(content, this);
 
-		// taking care of the key handler parameter:
-
-		if (key_handler != null && key_handler.equalsIgnoreCase("Pulse"))
-			CompetitionParameters.KEY_HANDLER = CompetitionParameters.KEY_PULSE;
-
-		ki = CompetitionParameters.KEY_HANDLER == CompetitionParameters.KEY_INPUT ? new KeyInput()
-				: new KeyPulse(no_players);
+		// taking care of the key handler parameter (only for this game, so it doesn't
+		// change the key handler of other games):
+		boolean pulse = CompetitionParameters.KEY_HANDLER == CompetitionParameters.KEY_PULSE
+				|| (key_handler != null && key_handler.equalsIgnoreCase("Pulse"));
+		keyHandler = pulse ? new KeyPulse(no_players) : new KeyInput();
+		ki = keyHandler;
 	}
 
 	/**
@@ -806,8 +957,15 @@ public abstract class Game {
 	 */
 	protected void addSprite(VGDLSprite sprite, int itype) {
 		sprite.spriteID = nextSpriteID;
+		sprite.owner = spriteOwner;
+		sprite.idleTick = gameTick + 1;
+		if (headless)
+			sprite.setHeadless();
 		spriteGroups[itype].addSprite(nextSpriteID++, sprite);
 		num_sprites++;
+		countSprites(itype, 1, sprite.is_disabled() ? 1 : 0);
+		if (ownedSprites != null)
+			ownedSprites.add(sprite);
 
 		if (sprite.is_stochastic)
 			this.is_stochastic = true;
@@ -822,11 +980,42 @@ public abstract class Game {
 	 * @return the number of sprites of the type and subtypes.
 	 */
 	public int getNumSprites(int itype) {
-		int acum = 0;
-		for (Integer subtype : this.iSubTypes[itype]) {
-			acum += spriteGroups[subtype].numSprites();
+		return numSpritesOfType[itype];
+	}
+
+	/**
+	 * Updates the number of sprites of a type and all the types it belongs to
+	 * (see iSuperTypes).
+	 *
+	 * @param itype
+	 *            leaf itype of the sprites.
+	 * @param num
+	 *            sprites added (or removed, if negative).
+	 * @param numDisabled
+	 *            disabled sprites added (or removed, if negative).
+	 */
+	protected void countSprites(int itype, int num, int numDisabled) {
+		for (int supertype : iSuperTypes[itype]) {
+			numSpritesOfType[supertype] += num;
+			numDisabledOfType[supertype] += numDisabled;
+		}
+	}
+
+	/**
+	 * Copies the number of sprites of each type of another game, whose sprites
+	 * this game has just copied or shared.
+	 *
+	 * @param game
+	 *            the game to copy the numbers from.
+	 */
+	protected void copySpriteCounts(Game game) {
+		if (numSpritesOfType == null || numSpritesOfType.length != game.numSpritesOfType.length) {
+			numSpritesOfType = game.numSpritesOfType.clone();
+			numDisabledOfType = game.numDisabledOfType.clone();
+		} else {
+			System.arraycopy(game.numSpritesOfType, 0, numSpritesOfType, 0, numSpritesOfType.length);
+			System.arraycopy(game.numDisabledOfType, 0, numDisabledOfType, 0, numDisabledOfType.length);
 		}
-		return acum;
 	}
 
 	/**
@@ -848,11 +1037,7 @@ public abstract class Game {
 	 * @return the number of disabled sprites of the type and subtypes.
 	 */
 	public int getNumDisabledSprites(int itype) {
-		int acum = 0;
-		for (Integer subtype : this.iSubTypes[itype]) {
-			acum += spriteGroups[subtype].numDisabledSprites();
-		}
-		return acum;
+		return numDisabledOfType[itype];
 	}
 
 	/**
@@ -865,6 +1050,9 @@ public abstract class Game {
 	 * @return the score of the game played.
 	 */
 	public double[] runGame(Player[] players, int randomSeed) {
+		// Nothing is drawn: sprites don't need their images.
+		setHeadless();
+
 		// Prepare some structures and references for this game.
 		prepareGame(players, randomSeed, -1);
 
@@ -879,6 +1067,39 @@ public abstract class Game {
 		return handleResult();
 	}
 
+	/**
+	 * Prepares the game to be played one cycle at a time, with playCycle(). This is
+	 * used when the game is driven from outside instead of by runGame(), like the
+	 * environments of a vectorized learning server.
+	 *
+	 * @param players
+	 *            Players that play this game.
+	 * @param randomSeed
+	 *            sampleRandom seed for the whole game.
+	 */
+	public void startGame(Player[] players, int randomSeed) {
+		prepareGame(players, randomSeed, -1);
+	}
+
+	/**
+	 * Plays one cycle of a game prepared with startGame(). The forward model is then
+	 * updated with the state of the game after the cycle, so getObservation() returns
+	 * the result of the actions just played. When the game ends, it is updated with the
+	 * final state of the game, as in runGame().
+	 *
+	 * @return true if the game is over.
+	 */
+	public boolean playCycle() {
+		if (!isEnded) {
+			this.gameCycle(); // Execute a game cycle.
+			if (isEnded)
+				fwdModel.update(this);
+			else
+				updateForwardModel();
+		}
+		return isEnded;
+	}
+
 	/**
 	 * Plays the game, graphics enabled.
 	 *
@@ -902,7 +1123,8 @@ public abstract class Game {
 		JEasyFrame frame;
 		frame = new JEasyFrame(view, "Java-VGDL");
 
-		frame.addKeyListener(ki);
+		ki = keyHandler;
+		frame.addKeyListener(keyHandler);
 		frame.addWindowListener(wi);
 		wi.windowClosed = false;
 
@@ -1072,6 +1294,7 @@ public abstract class Game {
 	private void prepareGame(Player[] players, int randomSeed, int humanID) {
 		// Start tick counter.
 		gameTick = -1;
+		tickPlayed = false;
 
 		// Create the sampleRandom generator.
 		random = new Random(randomSeed);
@@ -1091,10 +1314,11 @@ public abstract class Game {
 	 */
 	private void gameCycle() {
 		gameTick++; // next game tick.
+		tickPlayed = false;
 
 		// Update our state observation (forward model) with the information of
 		// the current game state.
-		fwdModel.update(this);
+		updateForwardModel();
 		// System.out.println(avatars[0].rect);
 
 		// Execute a game cycle:
@@ -1104,12 +1328,24 @@ public abstract class Game {
 		// sprites.
 		this.terminationHandling(); // check for game termination.
 		this.checkTimeOut(); // Check for end of game by time steps.
+		tickPlayed = true;
 
 		// if(gameTick == 0 || isEnded)
 		// fwdModel.printObservationGrid(); //uncomment this to show the
 		// observation grid.
 	}
 
+	/**
+	 * Updates the forward model with the current state of the game, sharing its
+	 * sprites if CompetitionParameters.INCREMENTAL_FORWARD_MODEL is set.
+	 */
+	private void updateForwardModel() {
+		if (CompetitionParameters.INCREMENTAL_FORWARD_MODEL)
+			fwdModel.share(this);
+		else
+			fwdModel.update(this);
+	}
+
 	/**
 	 * Handles the result for the game, considering disqualifications. Prints
 	 * the result (score, time and winner) and returns the score of the game.
@@ -1301,7 +1537,7 @@ public abstract class Game {
 				if (numAvatarSprites > i) { // check if there's enough avatars
 					// just in case
 					avatars[i] = avSprites.get(i);
-					avatars[i].setKeyHandler(ki);
+					avatars[i].setKeyHandler(keyHandler);
 					avatars[i].setPlayerID(i);
 				}
 			}
@@ -1368,18 +1604,35 @@ public abstract class Game {
 		// random = new Random(this.gameTick * 100); //uncomment this for
 		// testing a new rnd generator after avatar's move
 
-		int spriteOrderCount = spriteOrder.length;
-		for (int i = spriteOrderCount - 1; i >= 0; --i) {
+		tickSprites();
+	}
+
+	/**
+	 * Calls update(this) in all sprites but the avatars, following the opposite
+	 * order of the drawing order (inverse spriteOrder[]). Doesn't update disabled
+	 * sprites. Shared sprites (see ownSprite()) are only copied if this tick
+	 * changes them.
+	 */
+	protected void tickSprites() {
+		for (int i = spriteOrder.length - 1; i >= 0; --i) {
 			int spriteTypeInt = spriteOrder[i];
-			ArrayList<VGDLSprite> spritesList = spriteGroups[spriteTypeInt].getSprites();
-			if (spritesList != null)
-				for (VGDLSprite sp : spritesList) {
-					if (!(sp instanceof MovingAvatar) && !sp.is_disabled()) {
-						sp.preMovement();
-						sp.update(this);
-					}
+			SpriteGroup group = spriteGroups[spriteTypeInt];
+
+			int numSprites = group.numSprites();
+			for (int j = 0; j < numSprites; ++j) {
+				VGDLSprite sp = group.getSpriteByIdx(j);
+				if (sp.owner != spriteOwner) {
+					if (sp instanceof MovingAvatar || sp.is_disabled() || sp.isIdle())
+						continue;
+					sp = ownSprite(sp, group, j);
 				}
 
+				if (!(sp instanceof MovingAvatar) && !sp.is_disabled()) {
+					sp.preMovement();
+					sp.update(this);
+				}
+				sp.idleTick = gameTick + 1;
+			}
 		}
 	}
 
@@ -1388,11 +1641,15 @@ public abstract class Game {
 	 */
 	@SuppressWarnings("unchecked")
 	protected void eventHandling() {
-		// Array to indicate that the sprite type has no representative in
-		// collisions.
-		boolean noSprites[] = new boolean[spriteGroups.length];
+		handlingEvents = true;
+		if (stepEffects != null) {
+			stepEffects.clear();
+			stepSprites.clear();
+		}
 
 		// First, check the effects that are triggered in a timely manner.
+		if (sharedTimeEffects && timeEffects.size() > 0 && timeEffects.first().nextExecution <= gameTick)
+			ownTimeEffects();
 		while (timeEffects.size() > 0 && timeEffects.first().nextExecution <= gameTick) {
 			TimeEffect ef = timeEffects.pollFirst();
 			if (ef.enabled) {
@@ -1404,7 +1661,6 @@ public abstract class Game {
 					// With no sprite, the effect is independent from particular
 					// sprites.
 					ef.execute(null, null, this);
-					exec = true;
 
 					// Affect score for all players:
 					if (ef.applyScore) {
@@ -1412,18 +1668,20 @@ public abstract class Game {
 							avatars[i].addScore(ef.getScoreChange(i));
 						}
 					}
+					exec = true;
 
 				} else {
 
 					ArrayList<Integer> allTypes = iSubTypes[intId];
 					for (Integer itype : allTypes) {
 						// Find all sprites of this subtype.
-						Collection<VGDLSprite> sprites = this.getSprites(itype);
+						spriteGroups[itype].detach();
+						Collection<VGDLSprite> sprites = spriteGroups[itype].getSprites();
 						for (VGDLSprite sp : sprites) {
 							// Check that they are not dead (could happen in
 							// this same cycle).
-							if (!kill_list.contains(sp) && !sp.is_disabled()) {
-								executeEffect(ef, sp, null);
+							if (!isKilled(sp) && !sp.is_disabled()) {
+								executeEffect(ef, ownSprite(sp), null);
 								exec = true;
 							}
 						}
@@ -1444,25 +1702,31 @@ public abstract class Game {
 		// Secondly, we handle single sprite events (EOS). Take each sprite
 		// itype that has
 		// a EOS effect defined.
-		for (Integer intId : definedEOSEffects) {
+		int numEOSTypes = definedEOSEffects.size();
+		for (int i = 0; i < numEOSTypes; i++) {
+			int intId = definedEOSEffects.get(i);
 			// For each effect that this sprite has assigned.
-			for (Effect ef : eosEffects[intId]) {
+			ArrayList<Effect> effects = eosEffects[intId];
+			for (int j = 0; j < effects.size(); j++) {
+				Effect ef = effects.get(j);
 				// Take all the subtypes in the hierarchy of this sprite.
 				ArrayList<Integer> allTypes = iSubTypes[intId];
 				if (ef.enabled)
-					for (Integer itype : allTypes) {
+					for (int t = 0; t < allTypes.size(); t++) {
+						int itype = allTypes.get(t);
 						// Add all sprites of this subtype to the list of
 						// sprites.
 						// These are sprites that could potentially collide with
 						// EOS
-						Collection<VGDLSprite> sprites = this.getSprites(itype);
+						spriteGroups[itype].detach();
+						Collection<VGDLSprite> sprites = spriteGroups[itype].getSprites();
 						try{
 							for (VGDLSprite sp : sprites) {
 								// Check if they are at the edge to trigger the
 								// effect. Also check that they
 								// are not dead (could happen in this same cycle).
-								if (isAtEdge(sp.rect) && !kill_list.contains(sp) && !sp.is_disabled()) {
-									executeEffect(ef, sp, null);
+								if (isAtEdge(sp.rect) && !isKilled(sp) && !sp.is_disabled()) {
+									executeEffect(ef, ownSprite(sp), null);
 								}
 							}
 						}
@@ -1477,10 +1741,24 @@ public abstract class Game {
 		// Now, we handle events between pairs of sprites, for each pair of
 		// sprites that
 		// has a paired effect defined:
-		for (Pair<Integer, Integer> p : definedEffects) {
+		CollisionLists lists = collisionLists.get();
+		if (lists == null) {
+			lists = new CollisionLists();
+			collisionLists.set(lists);
+		}
+		ArrayList<VGDLSprite> firstx = lists.firstx;
+		ArrayList<VGDLSprite> secondx = lists.secondx;
+		ArrayList<VGDLSprite> new_secondx = lists.new_secondx;
+		SpriteStore secondStore = lists.secondStore;
+
+		int numPairs = definedEffects.size();
+		for (int e = 0; e < numPairs; e++) {
+			Pair<Integer, Integer> p = definedEffects.get(e);
 			// We iterate over the (potential) multiple effects that these
 			// two sprites could have defined between them.
-			for (Effect ef : collisionEffects[p.first][p.second]) {
+			ArrayList<Effect> effects = collisionEffects[p.first][p.second];
+			for (int f = 0; f < effects.size(); f++) {
+				Effect ef = effects.get(f);
 				if (ef.enabled) {
 
 					if (shieldedEffects[p.first].size() > 0) {
@@ -1488,46 +1766,383 @@ public abstract class Game {
 							continue;
 					}
 
-					ArrayList<VGDLSprite> firstx = new ArrayList<VGDLSprite>();
-					ArrayList<VGDLSprite> secondx = new ArrayList<VGDLSprite>();
-
 					ArrayList<Integer> allTypes1 = iSubTypes[p.first];
-					for (int i : allTypes1) {
-						firstx.addAll(getSprites(i));
+					firstx.clear();
+					for (int t = 0; t < allTypes1.size(); t++) {
+						addSprites(firstx, spriteGroups[allTypes1.get(t)].getSprites());
 					}
 					ArrayList<Integer> allTypes2 = iSubTypes[p.second];
-					for (int j : allTypes2) {
-						secondx.addAll(getSprites(j));
+					secondx.clear();
+					for (int t = 0; t < allTypes2.size(); t++) {
+						addSprites(secondx, spriteGroups[allTypes2.get(t)].getSprites());
 					}
 
-					ArrayList<VGDLSprite> new_secondx = new ArrayList<VGDLSprite>();
-
-					for (VGDLSprite s1 : firstx) {
-						new_secondx = new ArrayList<VGDLSprite>();
+					int numOwned = ownedCopies == null ? 0 : ownedCopies.size();
+
+					// Broad phase: with enough sprites, each sprite of firstx is only checked
+					// against the sprites of secondx in its cells of the grid.
+					SpatialHash hash = null;
+					int[] firstInSecond = null, collided = null;
+					int numGroupQueries = groupQueries;
+					if (firstx.size() >= BROAD_PHASE_MIN_SPRITES && secondx.size() >= BROAD_PHASE_MIN_SPRITES) {
+						hash = getCollisionHash();
+						hashSprites(hash, secondStore, secondx);
+						firstInSecond = indicesIn(allTypes1, allTypes2, lists);
+						collided = lists.collided;
+					}
 
-						for (VGDLSprite s2 : secondx) {
-							if ((s1 != s2 && s1.intersects(s2))) {
-								new_secondx.add(s2);
+					for (int k = 0; k < firstx.size(); k++) {
+						// Sprites copied by previous effects must be read from their copies.
+						if (ownedCopies != null && ownedCopies.size() != numOwned) {
+							numOwned = ownedCopies.size();
+							replaceOwned(firstx);
+							replaceOwned(secondx);
+						}
+						VGDLSprite s1 = firstx.get(k);
+						new_secondx.clear();
+						int numCollided = 0;
+
+						if (hash != null) {
+							// Effects that get whole sprite groups could have moved any sprite.
+							if (groupQueries != numGroupQueries) {
+								numGroupQueries = groupQueries;
+								hashSprites(hash, secondStore, secondx);
+							}
+							int numCandidates = hash.query(s1.rect);
+							int[] candidates = hash.getResults();
+							for (int i = 0; i < numCandidates; i++) {
+								if (!secondStore.intersects(candidates[i], s1.rect))
+									continue;
+								VGDLSprite s2 = secondx.get(candidates[i]);
+								if (s1 != s2) {
+									new_secondx.add(s2);
+									if (numCollided == collided.length)
+										collided = lists.collided = Arrays.copyOf(collided, numCollided * 2);
+									collided[numCollided++] = candidates[i];
+								}
+							}
+						} else {
+							int numSecond = secondx.size();
+							for (int i = 0; i < numSecond; i++) {
+								VGDLSprite s2 = secondx.get(i);
+								if ((s1 != s2 && s1.intersects(s2))) {
+									new_secondx.add(s2);
+								}
 							}
 						}
 
 						if(new_secondx.size() > 0) {
 							if (ef.inBatch) {
+								s1 = ownSprite(s1);
+								for (int i = 0; i < new_secondx.size(); i++)
+									new_secondx.set(i, ownSprite(new_secondx.get(i)));
 								executeEffectBatch(ef, s1, new_secondx);
 							} else {
 
 								for (int i = 0; i < new_secondx.size(); i++) {
-									if (!kill_list.contains(s1) && s1 != new_secondx.get(i) && s1.intersects(new_secondx.get(i))) {
-										executeEffect(ef, s1, new_secondx.get(i));
+									s1 = ownedCopy(s1);
+									VGDLSprite s2 = ownedCopy(new_secondx.get(i));
+									if (!s1.killed && s1 != s2 && s1.intersects(s2)) {
+										s1 = ownSprite(s1);
+										executeEffect(ef, s1, ownSprite(s2));
 									}
 								}
 							}
+
+							// The effects may have moved the sprites involved.
+							if (hash != null) {
+								for (int i = 0; i < numCollided; i++)
+									moveSprite(hash, secondStore, collided[i], ownedCopy(secondx.get(collided[i])));
+								if (firstInSecond != null && firstInSecond[k] != -1)
+									moveSprite(hash, secondStore, firstInSecond[k], ownedCopy(s1));
+							}
 						}
 					}
 				}
 			}
 		}
 
+		// The lists are kept for the next call, without keeping the sprites alive.
+		firstx.clear();
+		secondx.clear();
+		new_secondx.clear();
+		handlingEvents = false;
+	}
+
+	/**
+	 * Appends a list of sprites to another, without the copy of addAll().
+	 *
+	 * @param to
+	 *            list to append the sprites to.
+	 * @param from
+	 *            sprites to append.
+	 */
+	private static void addSprites(ArrayList<VGDLSprite> to, ArrayList<VGDLSprite> from) {
+		int numSprites = from.size();
+		to.ensureCapacity(to.size() + numSprites);
+		for (int i = 0; i < numSprites; i++)
+			to.add(from.get(i));
+	}
+
+	/**
+	 * Gets the broad phase grid of the current thread, creating it if needed.
+	 *
+	 * @return the spatial hash for collisions of this game.
+	 */
+	private SpatialHash getCollisionHash() {
+		SpatialHash hash = collisionHash.get();
+		if (hash == null || !hash.fits(block_size, screenSize.width, screenSize.height)) {
+			hash = new SpatialHash(block_size, screenSize.width, screenSize.height);
+			collisionHash.set(hash);
+		}
+		return hash;
+	}
+
+	/**
+	 * Stores a list of sprites in a spatial hash and in a sprite store, using their
+	 * positions in the list as ids and slots.
+	 *
+	 * @param hash
+	 *            spatial hash to fill.
+	 * @param store
+	 *            sprite store to fill.
+	 * @param sprites
+	 *            sprites to store.
+	 */
+	private void hashSprites(SpatialHash hash, SpriteStore store, ArrayList<VGDLSprite> sprites) {
+		hash.clear();
+		store.fill(sprites);
+		int numSprites = sprites.size();
+		for (int i = 0; i < numSprites; i++)
+			hash.add(i, sprites.get(i).rect);
+	}
+
+	/**
+	 * Updates the position of a sprite in a spatial hash and in a sprite store, after
+	 * it may have moved.
+	 *
+	 * @param hash
+	 *            spatial hash of the sprite.
+	 * @param store
+	 *            sprite store of the sprite.
+	 * @param id
+	 *            id and slot of the sprite.
+	 * @param sprite
+	 *            the sprite (or the copy that replaced it).
+	 */
+	private void moveSprite(SpatialHash hash, SpriteStore store, int id, VGDLSprite sprite) {
+		hash.move(id, sprite.rect);
+		store.update(id, sprite);
+	}
+
+	/**
+	 * Finds the position in the list of sprites of some types of the sprites of other
+	 * types, when both lists are built by appending the sprite groups in order.
+	 *
+	 * @param types
+	 *            sprite types of the first list.
+	 * @param otherTypes
+	 *            sprite types of the other list.
+	 * @param lists
+	 *            lists of this thread, whose buffer is filled with the positions.
+	 * @return the position in the other list of each sprite of the first one (-1 if not
+	 *         there), or null if the lists don't share any sprite type.
+	 */
+	private int[] indicesIn(ArrayList<Integer> types, ArrayList<Integer> otherTypes, CollisionLists lists) {
+		int numTypes = types.size(), numOtherTypes = otherTypes.size();
+		boolean shared = false;
+		for (int t = 0; t < numTypes && !shared; t++)
+			shared = otherTypes.contains(types.get(t));
+		if (!shared)
+			return null;
+
+		int numSprites = 0;
+		for (int t = 0; t < numTypes; t++)
+			numSprites += spriteGroups[types.get(t)].numSprites();
+		if (lists.firstInSecond.length < numSprites)
+			lists.firstInSecond = new int[Math.max(numSprites, lists.firstInSecond.length * 2)];
+		int[] indices = lists.firstInSecond;
+		Arrays.fill(indices, 0, numSprites, -1);
+
+		int offset = 0;
+		for (int t = 0; t < numTypes; t++) {
+			int itype = types.get(t);
+			int otherOffset = 0;
+			for (int o = 0; o < numOtherTypes; o++) {
+				int otherType = otherTypes.get(o);
+				if (otherType == itype) {
+					for (int i = 0; i < spriteGroups[itype].numSprites(); i++)
+						indices[offset + i] = otherOffset + i;
+					break;
+				}
+				otherOffset += spriteGroups[otherType].numSprites();
+			}
+			offset += spriteGroups[itype].numSprites();
+		}
+		return indices;
+	}
+
+	/**
+	 * Makes sure a sprite can be modified by this game. If the sprite is shared with
+	 * other forward models, it is replaced (in its sprite group, and in the avatars
+	 * array) by a copy that belongs to this game.
+	 *
+	 * @param sprite
+	 *            sprite that is going to be modified.
+	 * @return the sprite to modify: either 'sprite', or its copy.
+	 */
+	protected VGDLSprite ownSprite(VGDLSprite sprite) {
+		if (spriteOwner == null || sprite == null || sprite.owner == spriteOwner)
+			return sprite;
+		VGDLSprite copy = ownedCopies.get(sprite);
+		if (copy != null)
+			return copy;
+		SpriteGroup group = spriteGroups[sprite.getType()];
+		return ownSprite(sprite, group, group.indexOf(sprite));
+	}
+
+	/**
+	 * Replaces a shared sprite with a copy that belongs to this game.
+	 *
+	 * @param sprite
+	 *            shared sprite.
+	 * @param group
+	 *            sprite group of the sprite.
+	 * @param idx
+	 *            index of the sprite in the group (-1 if it isn't there).
+	 * @return the copy of the sprite.
+	 */
+	protected VGDLSprite ownSprite(VGDLSprite sprite, SpriteGroup group, int idx) {
+		VGDLSprite copy = sprite.copy();
+		if (headless)
+			copy.setHeadless();
+		copy.owner = spriteOwner;
+		// Shared sprites skip the ticks they are idle for (during events, this tick has been played already).
+		copy.catchUp(handlingEvents ? gameTick + 1 : gameTick);
+		ownedCopies.put(sprite, copy);
+		if (idx != -1) {
+			group.setSprite(idx, copy);
+			sharedHash -= sprite.stateHash();
+			ownedSprites.add(copy);
+		}
+		for (int i = 0; i < no_players; i++)
+			if (avatars[i] == sprite)
+				avatars[i] = (MovingAvatar) copy;
+		return copy;
+	}
+
+	/**
+	 * Makes sure all the sprites of a type can be modified by this game (see ownSprite()).
+	 *
+	 * @param itype
+	 *            type of the sprites.
+	 */
+	protected void ownGroup(int itype) {
+		if (spriteOwner == null)
+			return;
+		SpriteGroup group = spriteGroups[itype];
+		group.detach();
+		int numSprites = group.numSprites();
+		for (int i = 0; i < numSprites; i++) {
+			VGDLSprite sp = group.getSpriteByIdx(i);
+			if (sp.owner != spriteOwner)
+				ownSprite(sp, group, i);
+		}
+	}
+
+	/**
+	 * Replaces, in a list of sprites, the shared sprites that have been copied by this game.
+	 *
+	 * @param sprites
+	 *            list of sprites to update.
+	 */
+	private void replaceOwned(ArrayList<VGDLSprite> sprites) {
+		for (int i = 0; i < sprites.size(); i++)
+			sprites.set(i, ownedCopy(sprites.get(i)));
+	}
+
+	/**
+	 * Returns the copy that replaces a shared sprite in this game, if there is one.
+	 *
+	 * @param sprite
+	 *            the sprite.
+	 * @return the copy made by this game, or 'sprite' if it has not been copied.
+	 */
+	private VGDLSprite ownedCopy(VGDLSprite sprite) {
+		if (ownedCopies == null || sprite.owner == spriteOwner)
+			return sprite;
+		VGDLSprite copy = ownedCopies.get(sprite);
+		return copy == null ? sprite : copy;
+	}
+
+	/**
+	 * Starts sharing the sprites of this game with another forward model: from now on,
+	 * this game needs a new token to modify them (see ownSprite()). The avatars change
+	 * in every step, so they are kept by this game (the other model copies them).
+	 * sharedHash must include all the sprites of the game when this is called.
+	 */
+	protected void newSpriteOwner() {
+		spriteOwner = new Object();
+		clearOwned();
+		for (int i = 0; i < no_players; i++)
+			if (avatars[i] != null) {
+				avatars[i].owner = spriteOwner;
+				sharedHash -= avatars[i].stateHash();
+				ownedSprites.add(avatars[i]);
+			}
+	}
+
+	/**
+	 * Empties the collections of sprites owned by this game (see ownedCopies),
+	 * creating them if they don't exist.
+	 */
+	protected void clearOwned() {
+		if (ownedCopies == null) {
+			ownedCopies = new IdentityHashMap<VGDLSprite, VGDLSprite>();
+			ownedSprites = Collections.newSetFromMap(new IdentityHashMap<VGDLSprite, Boolean>());
+		} else {
+			ownedCopies.clear();
+			ownedSprites.clear();
+		}
+	}
+
+	/**
+	 * Adds up the state hashes of all the sprites of the game (see VGDLSprite.stateHash()).
+	 * Hashes are added (instead of XORed), so identical sprites don't cancel each other.
+	 *
+	 * @return the sum of the hashes of the sprites.
+	 */
+	protected long spritesHash() {
+		long hash = 0;
+		if (spriteOwner == null) {
+			// All sprites belong to this game, none is included in sharedHash.
+			for (SpriteGroup group : spriteGroups) {
+				int numSprites = group.numSprites();
+				for (int j = 0; j < numSprites; ++j)
+					hash += group.getSpriteByIdx(j).stateHash();
+			}
+			return hash;
+		}
+
+		hash = sharedHash;
+		for (VGDLSprite sp : ownedSprites)
+			hash += sp.stateHash();
+		return hash;
+	}
+
+	/**
+	 * Makes a private copy of the time effects, if they are shared with other forward models.
+	 */
+	protected void ownTimeEffects() {
+		if (sharedTimeEffects) {
+			// Ties are resolved by insertion order: copy them backwards to keep it.
+			TreeSet<TimeEffect> effects = new TreeSet<TimeEffect>();
+			Iterator<TimeEffect> it = timeEffects.descendingIterator();
+			while (it.hasNext())
+				effects.add(it.next().copy());
+			timeEffects = effects;
+			sharedTimeEffects = false;
+		}
 	}
 
 
@@ -1600,19 +2215,19 @@ public abstract class Game {
 
 	private void addEvent(VGDLSprite s1, VGDLSprite s2) {
 		if (s1.is_avatar)
-			historicEvents.add(
+			historicEvents = historicEvents.add(
 					new Event(gameTick, false, s1.getType(), s2.getType(), s1.spriteID, s2.spriteID, s1.getPosition()));
 
 		else if (s1.is_from_avatar)
-			historicEvents.add(
+			historicEvents = historicEvents.add(
 					new Event(gameTick, true, s1.getType(), s2.getType(), s1.spriteID, s2.spriteID, s1.getPosition()));
 
 		else if (s2.is_avatar)
-			historicEvents.add(
+			historicEvents = historicEvents.add(
 					new Event(gameTick, false, s2.getType(), s1.getType(), s2.spriteID, s1.spriteID, s2.getPosition()));
 
 		else if (s2.is_from_avatar)
-			historicEvents.add(
+			historicEvents = historicEvents.add(
 					new Event(gameTick, true, s2.getType(), s1.getType(), s2.spriteID, s1.spriteID, s2.getPosition()));
 	}
 
@@ -1624,11 +2239,9 @@ public abstract class Game {
 	 * @return true if rect is at the edge of the screen.
 	 */
 	private boolean isAtEdge(Rectangle rect) {
-		Rectangle r = new Rectangle(screenSize);
-		if (!r.contains(rect)) {
-			return true;
-		}
-		return false;
+		// Same as !new Rectangle(screenSize).contains(rect) (empty rectangles are never contained).
+		return rect.width <= 0 || rect.height <= 0 || rect.x < 0 || rect.y < 0
+				|| rect.x + rect.width > screenSize.width || rect.y + rect.height > screenSize.height;
 	}
 
 	/**
@@ -1666,8 +2279,9 @@ public abstract class Game {
 	 */
 	protected void clearAll(ForwardModel fm) {
 		for (VGDLSprite sprite : kill_list) {
-			int spriteType = sprite.getType();
-			this.spriteGroups[spriteType].removeSprite(sprite);
+			// Killed sprites belong to this game (see killSprite()).
+			if (ownedSprites != null)
+				ownedSprites.remove(sprite);
 			if (fm != null) {
 				fm.removeSpriteObservation(sprite);
 			}
@@ -1677,9 +2291,16 @@ public abstract class Game {
 				for (int i = 0; i < no_players; i++)
 					if (sprite == avatars[i])
 						avatars[i] = null;
-
-			num_sprites--;
-
+		}
+		// Each group is compacted once, keeping the order of its sprites.
+		for (VGDLSprite sprite : kill_list) {
+			SpriteGroup group = this.spriteGroups[sprite.getType()];
+			int numDisabled = group.numDisabledSprites();
+			int numRemoved = group.removeKilled();
+			if (numRemoved > 0) {
+				num_sprites -= numRemoved;
+				countSprites(group.getItype(), -numRemoved, group.numDisabledSprites() - numDisabled);
+			}
 		}
 		kill_list.clear();
 
@@ -1797,7 +2418,7 @@ public abstract class Game {
 				newSprite.setRect(position, spriteDim);
 
 				// Set last rect
-				newSprite.lastrect = new Rectangle(newSprite.rect);
+				newSprite.lastrect.setBounds(newSprite.rect);
 			}
 
 			// add the sprite to the collection of sprites in the game
@@ -1852,12 +2473,31 @@ public abstract class Game {
 	public void killSprite(VGDLSprite sprite, boolean transformed) {
 		if (sprite instanceof MovingAvatar && !transformed) { // if avatar, just
 			// disable
-			sprite.setDisabled(true);
+			if (!sprite.is_disabled()) {
+				spriteGroups[sprite.getType()].disableSprite(sprite);
+				countSprites(sprite.getType(), 0, 1);
+			}
 		} else {
-			kill_list.add(sprite);
+			// The sprite is marked as killed: it must belong to this game.
+			sprite = ownSprite(sprite);
+			if (!sprite.killed) {
+				spriteGroups[sprite.getType()].killSprite(sprite);
+				kill_list.add(sprite);
+			}
 		}
 	}
 
+	/**
+	 * Indicates if a sprite has been killed in this step (see killSprite()).
+	 *
+	 * @param sprite
+	 *            the sprite to check.
+	 * @return true if the sprite will be removed at the end of this step.
+	 */
+	public boolean isKilled(VGDLSprite sprite) {
+		return ownedCopy(sprite).killed;
+	}
+
 	/**
 	 * Gets an iterator for the collection of sprites for a particular sprite
 	 * type.
@@ -1867,6 +2507,11 @@ public abstract class Game {
 	 * @return sprite collection of the specified type.
 	 */
 	public Iterator<VGDLSprite> getSpriteGroup(int spriteItype) {
+		// Effects may modify any sprite they get.
+		if (handlingEvents) {
+			groupQueries++;
+			ownGroup(spriteItype);
+		}
 		return spriteGroups[spriteItype].getSpriteIterator();
 	}
 
@@ -1902,6 +2547,11 @@ public abstract class Game {
 	 * @return sprite collection of the specified type.
 	 */
 	public ArrayList<VGDLSprite> getSprites(int spriteItype) {
+		// Effects may modify any sprite they get.
+		if (handlingEvents) {
+			groupQueries++;
+			ownGroup(spriteItype);
+		}
 		return spriteGroups[spriteItype].getSprites();
 	}
 
@@ -1946,10 +2596,34 @@ public abstract class Game {
 		return eosEffects[obj1];
 	}
 
+	/**
+	 * Records that an effect has been triggered by a sprite in the current step,
+	 * for effects that act only once per step on each sprite (e.g. PullWithIt).
+	 *
+	 * @param ef
+	 *            the effect triggered.
+	 * @param sprite
+	 *            the sprite that triggers it.
+	 * @return true if the sprite had not triggered the effect yet in this step.
+	 */
+	public boolean triggerOncePerStep(Effect ef, VGDLSprite sprite) {
+		if (stepEffects == null) {
+			stepEffects = new ArrayList<Effect>();
+			stepSprites = new ArrayList<VGDLSprite>();
+		}
+		for (int i = 0; i < stepEffects.size(); ++i)
+			if (stepEffects.get(i) == ef && stepSprites.get(i).spriteID == sprite.spriteID)
+				return false;
+		stepEffects.add(ef);
+		stepSprites.add(sprite);
+		return true;
+	}
+
 	/**
 	 * Adds a time effect to the game.
 	 */
 	public void addTimeEffect(TimeEffect ef) {
+		ownTimeEffects();
 		timeEffects.add(ef);
 	}
 
@@ -2015,6 +2689,47 @@ public abstract class Game {
 		return screenSize;
 	}
 
+	/**
+	 * Gets the key handler of the avatars of this game.
+	 *
+	 * @return the key handler created when this game was parsed.
+	 */
+	public KeyHandler getKeyHandler() {
+		return keyHandler;
+	}
+
+	/**
+	 * Gets the registry of the sprite types of this game.
+	 *
+	 * @return the registry this game was parsed with.
+	 */
+	public VGDLRegistry getRegistry() {
+		return registry;
+	}
+
+	/**
+	 * Makes this game headless: its sprites drop their images and animations, and
+	 * the sprites created from then on don't keep them. Used when the game is
+	 * not going to be drawn (see runGame()). Reset by reset().
+	 */
+	public void setHeadless() {
+		headless = true;
+		for (SpriteGroup group : spriteGroups) {
+			int numSprites = group.numSprites();
+			for (int j = 0; j < numSprites; ++j)
+				group.getSpriteByIdx(j).setHeadless();
+		}
+	}
+
+	/**
+	 * Indicates if this game is headless (see setHeadless()).
+	 *
+	 * @return true if the sprites of this game keep no images.
+	 */
+	public boolean isHeadless() {
+		return headless;
+	}
+
 	/**
 	 * Defines this game as stochastic (or not) depending on the parameter
 	 * passed.
@@ -2111,25 +2826,33 @@ public abstract class Game {
 	public abstract boolean isGameOver();
 
 	/**
-	 * clear all the interactions and termination in the current game
+	 * clear all the interactions and termination in the current game. They are
+	 * replaced by new empty lists, so the observations obtained before keep
+	 * playing with their rules.
 	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
 	public void clearInteractionTerminationData() {
 		this.setStochastic(false);
-		this.terminations.clear();
-
-		this.definedEffects.clear();
-		for (int i = 0; i < this.collisionEffects.length; i++) {
-			for (int j = 0; j < this.collisionEffects[i].length; j++) {
-				this.collisionEffects[i][j].clear();
+		this.terminations = new ArrayList<Termination>();
+
+		this.definedEffects = new ArrayList<Pair<Integer, Integer>>();
+		ArrayList<Effect>[][] collisionEffects = new ArrayList[this.collisionEffects.length][];
+		for (int i = 0; i < collisionEffects.length; i++) {
+			collisionEffects[i] = new ArrayList[this.collisionEffects[i].length];
+			for (int j = 0; j < collisionEffects[i].length; j++) {
+				collisionEffects[i][j] = new ArrayList<Effect>();
 			}
 		}
+		this.collisionEffects = collisionEffects;
 
-		this.definedEOSEffects.clear();
-		for (int i = 0; i < this.eosEffects.length; i++) {
-			this.eosEffects[i].clear();
+		this.definedEOSEffects = new ArrayList<Integer>();
+		ArrayList<Effect>[] eosEffects = new ArrayList[this.eosEffects.length];
+		for (int i = 0; i < eosEffects.length; i++) {
+			eosEffects[i] = new ArrayList<Effect>();
 		}
+		this.eosEffects = eosEffects;
 
-		this.timeEffects.clear();
+		this.timeEffects = new TreeSet<TimeEffect>();
 	}
 
 	/**
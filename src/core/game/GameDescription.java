@@ -8,7 +8,6 @@ import java.util.Random;
 import core.logging.Logger;
 import core.logging.Message;
 
-import core.vgdl.VGDLRegistry;
 import ontology.Types;
 import ontology.avatar.MovingAvatar;
 
@@ -322,8 +321,8 @@ public class GameDescription {
 	 *         empty array is returned
 	 */
 	public ArrayList<GameDescription.InteractionData> getInteraction(String stype1, String stype2) {
-		int itype1 = VGDLRegistry.GetInstance().getRegisteredSpriteValue(stype1);
-		int itype2 = VGDLRegistry.GetInstance().getRegisteredSpriteValue(stype2);
+		int itype1 = currentGame.getRegistry().getRegisteredSpriteValue(stype1);
+		int itype2 = currentGame.getRegistry().getRegisteredSpriteValue(stype2);
 
 		return currentGame.getInteractionData(itype1, itype2);
 	}
@@ -339,15 +339,22 @@ public class SLDescription {
 			}
 		}
 
-		VGDLRegistry.GetInstance().init();
-		this.currentGame.loadDefaultConstr();
-		this.currentGame.clearInteractionTerminationData();
-
-		new VGDLParser().parseSpriteSet(this.currentGame, msetStructure, msprites);
-		new VGDLParser().parseInteractionTermination(this.currentGame, rw[0], rw[1]);
-
-		this.currentGame.reset();
-		this.currentGame.buildStringLevel(this.level, this.random.nextInt());
+		// the rules are parsed again in a new registry of the game, so the
+		// observations obtained before keep their own
+		VGDLRegistry previous = VGDLRegistry.bind(this.currentGame.getRegistry());
+		try {
+			this.currentGame.registry = VGDLRegistry.createThreadInstance();
+			this.currentGame.loadDefaultConstr();
+			this.currentGame.clearInteractionTerminationData();
+
+			new VGDLParser().parseSpriteSet(this.currentGame, msetStructure, msprites);
+			new VGDLParser().parseInteractionTermination(this.currentGame, rw[0], rw[1]);
+
+			this.currentGame.reset();
+			this.currentGame.buildStringLevel(this.level, this.random.nextInt());
+		} finally {
+			VGDLRegistry.setThreadInstance(previous);
+		}
 		if (Logger.getInstance().getMessageCount(Message.ERROR) > 0) {
 			return null;
 		}
@@ -5,14 +5,20 @@ import tools.com.google.gson.Gson;
 import ontology.Types;
 import tools.ElapsedCpuTimer;
 
+import tools.Vector2d;
+
 import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.io.ByteArrayOutputStream;
-import java.io.File;
+import java.io.DataOutput;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 
 /**
  * Created with IntelliJ IDEA.
@@ -28,6 +34,9 @@ public class SerializableStateObservation {
 
     // State Observation variables
     public byte[] imageArray;
+    public int imageWidth;
+    public int imageHeight;
+    public int imageChannels; // 0 if imageArray is a PNG file.
     public boolean isValidation;
     public float gameScore;
     public int gameTick;
@@ -72,21 +81,33 @@ public class SerializableStateObservation {
     public int fromAvatarSpritesPositionsNum;
     public int fromAvatarSpritesPositionsMaxRow;
 
-    public SerializableStateObservation(StateObservation s, Boolean both){
+    // Record of the sprite observations sent through the binary protocol (see writeBinary).
+    private transient HashMap<Integer, SentObservation> sentObservations;
+    private transient int[][] sentGrid;
+    private transient int[][][] sentPositions;
+    private transient int sentStamp;
+
+    /**
+     * Serializes a state with the image of the game.
+     * @param s the state.
+     * @param both true to send the game data too, false to send only the image.
+     * @param frame the last frame painted by the game (see VGDLViewer.getCapturedFrame()).
+     */
+    public SerializableStateObservation(StateObservation s, Boolean both, BufferedImage frame){
         try {
             if (!both) {
                 // Fill in the persistent variables (Score, tick)
                 buildGameData(s);
                 if(phase != Phase.START) {
                     // Create the image bytearray
-                    imageArray = imageToByteArray();
+                    imageArray = imageToByteArray(frame);
                 }
             } else {
                 // Fill in the persistent variables (Score, tick)
                 buildGameData(s);
                 if(phase != Phase.START) {
                     // Create the image bytearray
-                    imageArray = imageToByteArray();
+                    imageArray = imageToByteArray(frame);
                 }
                 // Fill in the simple data variables
                 buildDataVariables(s);
@@ -286,17 +307,55 @@ public class SerializableStateObservation {
 
 
 
-    public byte[] imageToByteArray() throws IOException {
-        ByteArrayOutputStream output = new ByteArrayOutputStream();
-        File pngfile = new File(CompetitionParameters.SCREENSHOT_FILENAME);
-        if (pngfile != null) {
-            ImageIO.write(ImageIO.read(pngfile), "png", output);
+    /**
+     * Gets the bytes of a frame painted by the game (see VGDLViewer.captureFrame()),
+     * in the format given by CompetitionParameters.IMAGE_FORMAT. Raw images are stored row
+     * by row, with the size in imageWidth and imageHeight and the bytes per pixel in
+     * imageChannels (RGB or gray).
+     * @param frame the frame, or null if none has been captured.
+     * @return the image bytes.
+     * @throws IOException if the image could not be encoded as PNG.
+     */
+    public byte[] imageToByteArray(BufferedImage frame) throws IOException {
+        if (frame == null) {
+            System.err.println("SerializableStateObservation: imageToByteArray(): no frame has been captured");
+            return imageArray;
+        }
+
+        if (CompetitionParameters.IMAGE_FORMAT == CompetitionParameters.IMAGE_PNG) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            ImageIO.write(frame, "png", output);
             imageArray = output.toByteArray();
-            if (imageArray == null) {
-                System.out.println("SerializableStateObservation: imageToByteArray(): imageArray is null");
+            imageWidth = frame.getWidth();
+            imageHeight = frame.getHeight();
+            imageChannels = 0;
+            return imageArray;
+        }
+
+        // Raw pixels, taking one pixel of each square of IMAGE_SCALE x IMAGE_SCALE.
+        boolean gray = CompetitionParameters.IMAGE_FORMAT == CompetitionParameters.IMAGE_GRAY;
+        int scale = Math.max(1, CompetitionParameters.IMAGE_SCALE);
+        int width = frame.getWidth(), height = frame.getHeight();
+        int[] pixels = ((DataBufferInt) frame.getRaster().getDataBuffer()).getData();
+        imageWidth = width / scale;
+        imageHeight = height / scale;
+        imageChannels = gray ? 1 : 3;
+        imageArray = new byte[imageWidth * imageHeight * imageChannels];
+
+        int idx = 0;
+        for (int y = 0; y < imageHeight; y++) {
+            int row = y * scale * width;
+            for (int x = 0; x < imageWidth; x++) {
+                int argb = pixels[row + x * scale];
+                int r = (argb >> 16) & 0xFF, g = (argb >> 8) & 0xFF, b = argb & 0xFF;
+                if (gray) {
+                    imageArray[idx++] = (byte) ((r * 299 + g * 587 + b * 114) / 1000);
+                } else {
+                    imageArray[idx++] = (byte) r;
+                    imageArray[idx++] = (byte) g;
+                    imageArray[idx++] = (byte) b;
+                }
             }
-        } else {
-            System.err.println("SerializableStateObservation: imageToByteArray(): pngfile is null");
         }
         return imageArray;
     }
@@ -323,6 +382,285 @@ public class SerializableStateObservation {
         return message;
     }
 
+    /**
+     * Writes this observation in the binary format of the learning protocol (see
+     * Comm.BINARY_SCHEMA). Fields are written in a fixed order; enums are written by
+     * name and missing objects are marked with a length of -1, so the client can read
+     * the observation back without parsing any text.
+     *
+     * Sprite observations are sent as a table keyed by Observation.obsID, and the grid and
+     * position arrays as lists of ids. If the previous observation sent is given, only the
+     * changes since then are written: ids removed, observations added or changed, and the
+     * lists of ids that changed. Otherwise, everything is written (a keyframe).
+     * @param out output to write to.
+     * @param previous last observation written to the same output, or null for a keyframe.
+     * @throws IOException if the output could not be written.
+     */
+    public void writeBinary(DataOutput out, SerializableStateObservation previous) throws IOException {
+        writeEnum(out, phase);
+        out.writeBoolean(isValidation);
+        out.writeFloat(gameScore);
+        out.writeInt(gameTick);
+        writeEnum(out, gameWinner);
+        out.writeBoolean(isGameOver);
+        writeDoubles(out, worldDimension);
+        out.writeInt(blockSize);
+        out.writeInt(noOfPlayers);
+        out.writeFloat(avatarSpeed);
+        writeDoubles(out, avatarOrientation);
+        writeDoubles(out, avatarPosition);
+        writeEnum(out, avatarLastAction);
+        out.writeInt(avatarType);
+        out.writeInt(avatarHealthPoints);
+        out.writeInt(avatarMaxHealthPoints);
+        out.writeInt(avatarLimitHealthPoints);
+        out.writeBoolean(isAvatarAlive);
+
+        if (availableActions == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(availableActions.size());
+            for (Types.ACTIONS action : availableActions)
+                writeEnum(out, action);
+        }
+
+        if (avatarResources == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(avatarResources.size());
+            for (Map.Entry<Integer, Integer> entry : avatarResources.entrySet()) {
+                out.writeInt(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+        }
+
+        if (imageArray == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(imageArray.length);
+            out.writeInt(imageWidth);
+            out.writeInt(imageHeight);
+            out.writeInt(imageChannels);
+            out.write(imageArray);
+        }
+
+        writeObservations(out, previous);
+    }
+
+    /**
+     * Writes the sprite observations, as a keyframe or as changes from the previous
+     * observation sent. The state of what has been sent is moved from the previous
+     * observation to this one.
+     * @param out output to write to.
+     * @param previous last observation written, or null for a keyframe.
+     * @throws IOException if the output could not be written.
+     */
+    private void writeObservations(DataOutput out, SerializableStateObservation previous) throws IOException {
+        boolean keyframe = previous == null || previous.sentObservations == null;
+        if (keyframe) {
+            sentObservations = new HashMap<>();
+            sentStamp = 1;
+        } else {
+            sentObservations = previous.sentObservations;
+            sentGrid = previous.sentGrid;
+            sentPositions = previous.sentPositions;
+            sentStamp = previous.sentStamp + 1;
+            previous.sentObservations = null;
+        }
+        Observation[][] grid = gridCells();
+        Observation[][][] positions = {NPCPositions, immovablePositions, movablePositions,
+                resourcesPositions, portalsPositions, fromAvatarSpritesPositions};
+
+        // Observations added or changed. The same observation may be in many lists.
+        ArrayList<Observation> changed = new ArrayList<>();
+        findChanged(grid, changed);
+        for (Observation[][] rows : positions)
+            findChanged(rows, changed);
+
+        out.writeBoolean(keyframe);
+        ArrayList<Integer> removed = new ArrayList<>();
+        for (Iterator<Map.Entry<Integer, SentObservation>> it = sentObservations.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Integer, SentObservation> entry = it.next();
+            if (entry.getValue().stamp != sentStamp) {
+                removed.add(entry.getKey());
+                it.remove();
+            }
+        }
+        out.writeInt(removed.size());
+        for (int id : removed)
+            out.writeInt(id);
+
+        out.writeInt(changed.size());
+        for (Observation obs : changed) {
+            out.writeInt(obs.obsID);
+            out.writeInt(obs.category);
+            out.writeInt(obs.itype);
+            writeVector(out, obs.position);
+            writeVector(out, obs.reference);
+            out.writeDouble(obs.sqDist);
+        }
+
+        // Lists of ids.
+        if (grid == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(observationGrid.length);
+            out.writeInt(observationGrid[0].length);
+        }
+        sentGrid = writeRows(out, grid, keyframe ? null : sentGrid);
+        if (keyframe)
+            sentPositions = new int[positions.length][][];
+        for (int i = 0; i < positions.length; i++) {
+            out.writeInt(positions[i] == null ? -1 : positions[i].length);
+            sentPositions[i] = writeRows(out, positions[i], sentPositions[i]);
+        }
+    }
+
+    /**
+     * Finds the observations that were not sent, or have changed since they were sent,
+     * and updates the record of what has been sent.
+     * @param rows lists of observations (may be null).
+     * @param changed list where the observations found are added.
+     */
+    private void findChanged(Observation[][] rows, ArrayList<Observation> changed) {
+        if (rows == null)
+            return;
+        for (Observation[] row : rows) {
+            if (row == null)
+                continue;
+            for (Observation obs : row) {
+                SentObservation sent = sentObservations.get(obs.obsID);
+                if (sent == null) {
+                    sent = new SentObservation();
+                    sentObservations.put(obs.obsID, sent);
+                } else if (sent.stamp == sentStamp || sent.matches(obs)) {
+                    sent.stamp = sentStamp;
+                    continue;
+                }
+                sent.set(obs);
+                sent.stamp = sentStamp;
+                changed.add(obs);
+            }
+        }
+    }
+
+    /**
+     * Writes the ids of the lists of observations that changed since they were sent.
+     * @param out output to write to.
+     * @param rows lists of observations (may be null).
+     * @param sentRows ids of the lists sent before (null to write all lists).
+     * @return the ids of the lists, as sent.
+     * @throws IOException if the output could not be written.
+     */
+    private static int[][] writeRows(DataOutput out, Observation[][] rows, int[][] sentRows) throws IOException {
+        if (rows == null)
+            return null;
+        if (sentRows == null || sentRows.length != rows.length)
+            sentRows = new int[rows.length][];
+
+        int numChanged = 0;
+        boolean[] changed = new boolean[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            Observation[] row = rows[i];
+            int[] ids = sentRows[i];
+            boolean same = row == null ? ids == null : ids != null && ids.length == row.length;
+            for (int j = 0; same && row != null && j < row.length; j++)
+                same = ids[j] == row[j].obsID;
+            if (!same) {
+                changed[i] = true;
+                numChanged++;
+            }
+        }
+
+        out.writeInt(numChanged);
+        for (int i = 0; i < rows.length; i++) {
+            if (!changed[i])
+                continue;
+            Observation[] row = rows[i];
+            out.writeInt(i);
+            if (row == null) {
+                out.writeInt(-1);
+                sentRows[i] = null;
+                continue;
+            }
+            int[] ids = new int[row.length];
+            out.writeInt(row.length);
+            for (int j = 0; j < row.length; j++) {
+                ids[j] = row[j].obsID;
+                out.writeInt(ids[j]);
+            }
+            sentRows[i] = ids;
+        }
+        return sentRows;
+    }
+
+    /**
+     * Gets the cells of the observation grid as a single array, column by column.
+     * @return the cells of the grid, or null if there is no grid.
+     */
+    private Observation[][] gridCells() {
+        if (observationGrid == null)
+            return null;
+        int rows = observationGrid[0].length;
+        Observation[][] cells = new Observation[observationGrid.length * rows][];
+        for (int i = 0; i < observationGrid.length; i++)
+            System.arraycopy(observationGrid[i], 0, cells, i * rows, rows);
+        return cells;
+    }
+
+    private static void writeEnum(DataOutput out, Enum<?> value) throws IOException {
+        out.writeUTF(value == null ? "" : value.name());
+    }
+
+    private static void writeDoubles(DataOutput out, double[] values) throws IOException {
+        if (values == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(values.length);
+        for (double value : values)
+            out.writeDouble(value);
+    }
+
+    private static void writeVector(DataOutput out, Vector2d vector) throws IOException {
+        out.writeBoolean(vector != null);
+        if (vector != null) {
+            out.writeDouble(vector.x);
+            out.writeDouble(vector.y);
+        }
+    }
+
+    /**
+     * Values of an observation, as sent to the client.
+     */
+    private static class SentObservation {
+        int category, itype;
+        double x, y, sqDist;
+        boolean hasReference;
+        double refX, refY;
+        int stamp;
+
+        boolean matches(Observation obs) {
+            return category == obs.category && itype == obs.itype && sqDist == obs.sqDist &&
+                    x == obs.position.x && y == obs.position.y &&
+                    hasReference == (obs.reference != null) &&
+                    (!hasReference || (refX == obs.reference.x && refY == obs.reference.y));
+        }
+
+        void set(Observation obs) {
+            category = obs.category;
+            itype = obs.itype;
+            sqDist = obs.sqDist;
+            x = obs.position.x;
+            y = obs.position.y;
+            hasReference = obs.reference != null;
+            if (hasReference) {
+                refX = obs.reference.x;
+                refY = obs.reference.y;
+            }
+        }
+    }
+
     public void setPhase(Types.GAMESTATES currentGameState) {
         if (currentGameState.equals(Types.GAMESTATES.INIT_STATE)) {
             phase = Phase.INIT;
@@ -0,0 +1,286 @@
+package core.game;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+/**
+ * Uniform grid that stores integer ids by the cells their rectangles overlap. It is
+ * used as broad phase for collision detection: given a rectangle, it returns the ids of
+ * all stored rectangles that share a cell with it (a superset of those that intersect it).
+ * Cells out of the screen are clamped to the border cells, so any position can be stored.
+ */
+public class SpatialHash
+{
+    /**
+     * Size of a cell, in pixels.
+     */
+    private int cellSize;
+
+    /**
+     * Number of columns and rows of the grid.
+     */
+    private int cols, rows;
+
+    /**
+     * Ids stored in each cell (cellItems[cell][0..cellCount[cell]-1]).
+     */
+    private int[][] cellItems;
+    private int[] cellCount;
+
+    /**
+     * Range of cells covered by each id (inclusive). minCol[id] == -1 if the id is not stored.
+     */
+    private int[] minCol, minRow, maxCol, maxRow;
+
+    /**
+     * Number of ids this hash can hold without growing.
+     */
+    private int capacity;
+
+    /**
+     * Query stamp of each id, to avoid returning duplicates.
+     */
+    private int[] stamp;
+    private int currentStamp;
+
+    /**
+     * Results of the last query.
+     */
+    private int[] results;
+
+    /**
+     * Creates a spatial hash for a given screen.
+     * @param cellSize size of each cell, in pixels.
+     * @param width width of the screen, in pixels.
+     * @param height height of the screen, in pixels.
+     */
+    public SpatialHash(int cellSize, int width, int height)
+    {
+        this.cellSize = Math.max(1, cellSize);
+        this.cols = Math.max(1, (width + this.cellSize - 1) / this.cellSize);
+        this.rows = Math.max(1, (height + this.cellSize - 1) / this.cellSize);
+        cellItems = new int[cols * rows][];
+        cellCount = new int[cols * rows];
+        ensureCapacity(64);
+        results = new int[64];
+    }
+
+    /**
+     * Checks if this hash has the grid that would be created for a given screen.
+     * @param cellSize size of each cell, in pixels.
+     * @param width width of the screen, in pixels.
+     * @param height height of the screen, in pixels.
+     * @return true if the grid is the same.
+     */
+    public boolean fits(int cellSize, int width, int height)
+    {
+        int size = Math.max(1, cellSize);
+        return this.cellSize == size && cols == Math.max(1, (width + size - 1) / size)
+                && rows == Math.max(1, (height + size - 1) / size);
+    }
+
+    /**
+     * Removes all ids from the hash.
+     */
+    public void clear()
+    {
+        Arrays.fill(cellCount, 0);
+        Arrays.fill(minCol, -1);
+    }
+
+    /**
+     * Stores an id in the cells overlapped by a rectangle. Empty rectangles are not
+     * stored, as they can't intersect anything.
+     * @param id id to store (0 or greater).
+     * @param rect rectangle of the id.
+     */
+    public void add(int id, Rectangle rect)
+    {
+        ensureCapacity(id + 1);
+        minCol[id] = -1;
+        if(rect.width <= 0 || rect.height <= 0)
+            return;
+
+        minCol[id] = col(rect.x);
+        minRow[id] = row(rect.y);
+        maxCol[id] = col(rect.x + rect.width - 1);
+        maxRow[id] = row(rect.y + rect.height - 1);
+        for(int c = minCol[id]; c <= maxCol[id]; ++c)
+            for(int r = minRow[id]; r <= maxRow[id]; ++r)
+                addToCell(c * rows + r, id);
+    }
+
+    /**
+     * Updates the cells of an id whose rectangle may have changed.
+     * @param id id stored in the hash.
+     * @param rect new rectangle of the id.
+     */
+    public void move(int id, Rectangle rect)
+    {
+        if(id < capacity && minCol[id] != -1 && rect.width > 0 && rect.height > 0 &&
+                minCol[id] == col(rect.x) && minRow[id] == row(rect.y) &&
+                maxCol[id] == col(rect.x + rect.width - 1) && maxRow[id] == row(rect.y + rect.height - 1))
+            return; //Same cells.
+
+        remove(id);
+        add(id, rect);
+    }
+
+    /**
+     * Removes an id from the hash.
+     * @param id id to remove.
+     */
+    public void remove(int id)
+    {
+        if(id >= capacity || minCol[id] == -1)
+            return;
+
+        for(int c = minCol[id]; c <= maxCol[id]; ++c)
+            for(int r = minRow[id]; r <= maxRow[id]; ++r)
+            {
+                int cell = c * rows + r;
+                int[] items = cellItems[cell];
+                int n = cellCount[cell];
+                for(int i = 0; i < n; ++i)
+                    if(items[i] == id)
+                    {
+                        items[i] = items[n - 1];
+                        cellCount[cell] = n - 1;
+                        break;
+                    }
+            }
+        minCol[id] = -1;
+    }
+
+    /**
+     * Finds the ids stored in the cells overlapped by a rectangle. The ids are
+     * returned in ascending order, without duplicates, in the array given by getResults().
+     * @param rect rectangle to look around.
+     * @return the number of ids found.
+     */
+    public int query(Rectangle rect)
+    {
+        if(rect.width <= 0 || rect.height <= 0)
+            return 0;
+
+        if(++currentStamp == Integer.MAX_VALUE)
+        {
+            Arrays.fill(stamp, 0);
+            currentStamp = 1;
+        }
+
+        int numResults = 0;
+        int c1 = col(rect.x + rect.width - 1), r1 = row(rect.y + rect.height - 1);
+        for(int c = col(rect.x); c <= c1; ++c)
+            for(int r = row(rect.y); r <= r1; ++r)
+            {
+                int cell = c * rows + r;
+                int[] items = cellItems[cell];
+                int n = cellCount[cell];
+                for(int i = 0; i < n; ++i)
+                {
+                    int id = items[i];
+                    if(stamp[id] != currentStamp)
+                    {
+                        stamp[id] = currentStamp;
+                        if(numResults == results.length)
+                            results = Arrays.copyOf(results, numResults * 2);
+                        results[numResults++] = id;
+                    }
+                }
+            }
+
+        //Few ids are found at a time: insertion sort.
+        for(int i = 1; i < numResults; ++i)
+        {
+            int id = results[i];
+            int j = i - 1;
+            while(j >= 0 && results[j] > id)
+            {
+                results[j + 1] = results[j];
+                --j;
+            }
+            results[j + 1] = id;
+        }
+        return numResults;
+    }
+
+    /**
+     * Gets the ids found by the last query.
+     * @return array with the results of the last query (only the first positions are valid).
+     */
+    public int[] getResults()
+    {
+        return results;
+    }
+
+    /**
+     * Adds an id to a cell.
+     * @param cell index of the cell.
+     * @param id id to add.
+     */
+    private void addToCell(int cell, int id)
+    {
+        int[] items = cellItems[cell];
+        int n = cellCount[cell];
+        if(items == null)
+            items = cellItems[cell] = new int[4];
+        else if(n == items.length)
+            items = cellItems[cell] = Arrays.copyOf(items, n * 2);
+        items[n] = id;
+        cellCount[cell] = n + 1;
+    }
+
+    /**
+     * Makes sure ids up to size-1 can be stored.
+     * @param size number of ids.
+     */
+    private void ensureCapacity(int size)
+    {
+        if(size <= capacity)
+            return;
+
+        int newCapacity = Math.max(size, capacity * 2);
+        minCol = grow(minCol, newCapacity, -1);
+        minRow = grow(minRow, newCapacity, 0);
+        maxCol = grow(maxCol, newCapacity, 0);
+        maxRow = grow(maxRow, newCapacity, 0);
+        stamp = grow(stamp, newCapacity, 0);
+        capacity = newCapacity;
+    }
+
+    /**
+     * Grows an array, filling the new positions with a value.
+     * @param array array to grow (may be null).
+     * @param size new size.
+     * @param value value for the new positions.
+     * @return the new array.
+     */
+    private static int[] grow(int[] array, int size, int value)
+    {
+        int oldSize = array == null ? 0 : array.length;
+        int[] newArray = array == null ? new int[size] : Arrays.copyOf(array, size);
+        Arrays.fill(newArray, oldSize, size, value);
+        return newArray;
+    }
+
+    /**
+     * Column of the grid for a x coordinate, clamped to the grid.
+     * @param x x coordinate, in pixels.
+     * @return the column.
+     */
+    private int col(int x)
+    {
+        return x < 0 ? 0 : Math.min(cols - 1, x / cellSize);
+    }
+
+    /**
+     * Row of the grid for a y coordinate, clamped to the grid.
+     * @param y y coordinate, in pixels.
+     * @return the row.
+     */
+    private int row(int y)
+    {
+        return y < 0 ? 0 : Math.min(rows - 1, y / cellSize);
+    }
+}
@@ -0,0 +1,105 @@
+package core.game;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import core.vgdl.VGDLSprite;
+
+/**
+ * Flat copy of the rectangles of a list of sprites, kept in primitive arrays
+ * indexed by the position (slot) of each sprite in the list. It is used by the collision
+ * pass of a game (see Game.eventHandling()), which tests many rectangles against the
+ * same sprites: the tests read these arrays instead of the sprite objects.
+ * The store doesn't follow its sprites: whoever moves them must update their slots.
+ * The arrays are reused when the store is filled again.
+ */
+public class SpriteStore
+{
+    /**
+     * Number of sprites in the store.
+     */
+    private int numSprites;
+
+    /**
+     * Rectangle of each sprite (position of its top-left corner and size), in pixels.
+     */
+    private int[] x, y, width, height;
+
+    /**
+     * Creates an empty sprite store.
+     */
+    public SpriteStore()
+    {
+        grow(64);
+    }
+
+    /**
+     * Replaces the sprites of the store with those of a list, in the same order.
+     * @param sprites sprites to store.
+     */
+    public void fill(ArrayList<VGDLSprite> sprites)
+    {
+        numSprites = sprites.size();
+        if(numSprites > x.length)
+            grow(Math.max(numSprites, x.length * 2));
+        for(int i = 0; i < numSprites; ++i)
+            update(i, sprites.get(i));
+    }
+
+    /**
+     * Copies the current rectangle of a sprite to its slot.
+     * @param slot slot of the sprite.
+     * @param sprite sprite in that slot (or the copy that replaced it).
+     */
+    public void update(int slot, VGDLSprite sprite)
+    {
+        Rectangle rect = sprite.rect;
+        x[slot] = rect.x;
+        y[slot] = rect.y;
+        width[slot] = rect.width;
+        height[slot] = rect.height;
+    }
+
+    /**
+     * Checks if the rectangle of a slot intersects another rectangle, as
+     * Rectangle.intersects() does: empty rectangles don't intersect anything.
+     * @param slot slot of the sprite.
+     * @param rect rectangle to check.
+     * @return true if they intersect.
+     */
+    public boolean intersects(int slot, Rectangle rect)
+    {
+        int tw = width[slot], th = height[slot], rw = rect.width, rh = rect.height;
+        if(rw <= 0 || rh <= 0 || tw <= 0 || th <= 0)
+            return false;
+
+        int tx = x[slot], ty = y[slot], rx = rect.x, ry = rect.y;
+        rw += rx;
+        rh += ry;
+        tw += tx;
+        th += ty;
+        //Overflows of the far edges are handled as in Rectangle.
+        return (rw < rx || rw > tx) && (rh < ry || rh > ty) && (tw < tx || tw > rx) && (th < ty || th > ry);
+    }
+
+    /**
+     * Grows the arrays of the store, keeping their contents.
+     * @param size new number of slots.
+     */
+    private void grow(int size)
+    {
+        if(x == null)
+        {
+            x = new int[size];
+            y = new int[size];
+            width = new int[size];
+            height = new int[size];
+            return;
+        }
+        x = Arrays.copyOf(x, size);
+        y = Arrays.copyOf(y, size);
+        width = Arrays.copyOf(width, size);
+        height = Arrays.copyOf(height, size);
+    }
+}
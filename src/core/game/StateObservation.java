@@ -57,6 +57,34 @@ public class StateObservation {
         return copyObs;
     }
 
+    /**
+     * Returns a copy of the state observation, as copy() does, that can be advanced in a
+     * different thread from this state and its other copies. The copy, and the copies made
+     * from it, have their own copies of the effects and terminations of the game.
+     *
+     * @return a copy of the state observation.
+     */
+    public StateObservation copyForThread() {
+        StateObservation copyObs = copy();
+        copyObs.model.ownRules();
+        return copyObs;
+    }
+
+    /**
+     * Makes another state observation a copy of this one, as copy() does, but reusing
+     * the forward model of the target (its arrays, lists and observation grid). The previous
+     * state of the target is lost: the grid returned by its getObservationGrid() is filled
+     * with the observations of the new state. The Observation objects and the lists of
+     * observations (e.g. getNPCPositions()) obtained from it before are not modified.
+     * Agents that discard many copies can recycle them with this method, or with a
+     * StateObservationPool.
+     * @param target state observation to overwrite. It must belong to the same game.
+     */
+    public void copyInto(StateObservation target) {
+        model.copyInto(target.model);
+        target.playerID = this.playerID;
+    }
+
     /**
      * Advances the state using the action passed as the move of the agent.
      * It updates all entities in the game. It modifies the object 'this' to
@@ -287,7 +315,9 @@ public class StateObservation {
      * context, events are collisions of the avatar with other sprites in the game. Additionally,
      * the list also contains information about collisions of a sprite created by the avatar
      * (usually by using the action Types.ACTIONS.ACTION_USE) with other sprites. The list
-     * is ordered asc. by game step.
+     * is ordered asc. by game step. It belongs to this state and is updated with the new
+     * events when the state is advanced, so it must not be modified. Building it the first
+     * time visits the whole history: see getEventsHistory(int) for the recent events only.
      *
      * @return list of events triggered by the avatar or sprites it created.
      */
@@ -296,6 +326,65 @@ public class StateObservation {
          return model.getEventsHistory();
     }
 
+    /**
+     * This method retrieves the events (see getEventsHistory()) that happened in the last
+     * game steps. Agents that only need recent events should use this method, as its cost
+     * does not grow with the length of the game.
+     *
+     * @param numSteps number of game steps played, counting back from the last one.
+     * @return list of events of the last numSteps game steps, ordered asc. by game step.
+     */
+    public TreeSet<Event> getEventsHistory(int numSteps)
+    {
+         return model.getEventsHistory(numSteps);
+    }
+
+    /**
+     * Returns the observation of a category (see Types.TYPE_*) closest to a reference
+     * position. Unlike the get*Positions() methods, it doesn't build or sort the lists of
+     * observations of the category: only the cells of the observation grid around the
+     * reference are searched.
+     *
+     * @param category category of the observation (e.g. Types.TYPE_NPC), or -1 for any.
+     * @param reference reference position.
+     * @return the closest observation, or null if there isn't any.
+     */
+    public Observation getNearest(int category, Vector2d reference)
+    {
+        ArrayList<Observation> nearest = model.getNearestObservations(category, reference, 1);
+        return nearest.isEmpty() ? null : nearest.get(0);
+    }
+
+    /**
+     * Returns the k observations of a category (see Types.TYPE_*) closest to a reference
+     * position, searching the observation grid around it (see getNearest()). The field
+     * sqDist of the observations is not updated: distances can be computed with
+     * position.sqDist(reference).
+     *
+     * @param category category of the observations (e.g. Types.TYPE_NPC), or -1 for any.
+     * @param reference reference position.
+     * @param k number of observations.
+     * @return up to k observations, ordered asc. by distance to the reference.
+     */
+    public ArrayList<Observation> getNearest(int category, Vector2d reference, int k)
+    {
+        return model.getNearestObservations(category, reference, k);
+    }
+
+    /**
+     * Returns the observations of a category (see Types.TYPE_*) within a distance of a
+     * reference position, searching the observation grid around it (see getNearest()).
+     *
+     * @param category category of the observations (e.g. Types.TYPE_NPC), or -1 for any.
+     * @param reference reference position.
+     * @param radius maximum distance (in pixels) from the reference.
+     * @return the observations found, ordered asc. by distance to the reference.
+     */
+    public ArrayList<Observation> getWithinRadius(int category, Vector2d reference, double radius)
+    {
+        return model.getObservationsWithin(category, reference, radius);
+    }
+
     /**
      * Returns a list of observations of NPC in the game. As there can be
      * NPCs of different type, each entry in the array corresponds to a sprite type.
@@ -475,6 +564,21 @@ public class StateObservation {
     public KeyHandler getKeyHandler(int playerID) { return model.avatars[playerID].getKeyHandler(); }
 
 
+    /**
+     * Returns a hash of the state of the game: the type, position, orientation, health
+     * points and resources of all sprites, the score and win state of the avatars, the game
+     * counters, the time effects pending and whether the game is over. It doesn't include the
+     * game tick, so states reached through different sequences of actions have the same hash
+     * (see ForwardModel.stateHash() for the rest of the state left out). It is updated
+     * incrementally as the state advances, so it is cheap to compute. Different states may
+     * have the same hash, although it is very unlikely (see tools.TranspositionTable).
+     * @return the hash of this state.
+     */
+    public long stateHash()
+    {
+        return model.stateHash();
+    }
+
     /**
      * Compares if this and the received StateObservation state are equivalent.
      * DEBUG ONLY METHOD.
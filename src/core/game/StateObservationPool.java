@@ -0,0 +1,64 @@
+package core.game;
+
+import java.util.ArrayList;
+
+/**
+ * Pool of state observations for agents that make many copies of the state and discard
+ * them (e.g. in each iteration of a search). Copies returned to the pool with release()
+ * are overwritten by the next calls to copy() (see StateObservation.copyInto()), so the
+ * search doesn't allocate a new forward model for each copy. Observations taken from a
+ * released copy can still be used, except its observation grid, which is reused.
+ *
+ * A pool is meant to be used by one agent (and thread), for the states of one game.
+ *
+ * @param <T> type of the state observations (StateObservation or StateObservationMulti).
+ */
+public class StateObservationPool<T extends StateObservation>
+{
+    /**
+     * State observations released, ready to be reused.
+     */
+    private ArrayList<T> free = new ArrayList<T>();
+
+    /**
+     * Returns a copy of a state observation, reusing one released to this pool if possible.
+     * @param stateObs state observation to copy.
+     * @return the copy.
+     */
+    @SuppressWarnings("unchecked")
+    public T copy(T stateObs)
+    {
+        if(free.isEmpty())
+            return (T) stateObs.copy();
+        T copy = free.remove(free.size() - 1);
+        stateObs.copyInto(copy);
+        return copy;
+    }
+
+    /**
+     * Returns a state observation to this pool. It must not be used after this call, and
+     * the grid returned by its getObservationGrid() is overwritten when it is reused.
+     * @param stateObs state observation, obtained from copy().
+     */
+    public void release(T stateObs)
+    {
+        free.add(stateObs);
+    }
+
+    /**
+     * Removes all the state observations of this pool (e.g. when the game changes).
+     */
+    public void clear()
+    {
+        free.clear();
+    }
+
+    /**
+     * Gets the number of state observations ready to be reused.
+     * @return the number of released state observations.
+     */
+    public int size()
+    {
+        return free.size();
+    }
+}
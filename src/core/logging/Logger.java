@@ -5,6 +5,11 @@ import java.util.ArrayList;
 public class Logger {
 
     private static final Logger instance = new Logger();
+
+    /**
+     * Logger used by the current thread instead of the shared one, if set.
+     */
+    private static final ThreadLocal<Logger> threadInstance = new ThreadLocal<Logger>();
     private ArrayList<Message> messages;
 
     /**
@@ -26,7 +31,41 @@ public class Logger {
      * @return the instance
      */
     public static Logger getInstance() {
-        return instance;
+        Logger local = threadInstance.get();
+        return local != null ? local : instance;
+    }
+
+    /**
+     * Creates a new logger and makes it the one returned by getInstance() in the
+     * current thread, so games played in parallel don't mix their messages.
+     *
+     * @return the new logger
+     */
+    public static Logger createThreadInstance() {
+        Logger local = new Logger();
+        local.active = instance.active;
+        threadInstance.set(local);
+        return local;
+    }
+
+    /**
+     * Sets the logger returned by getInstance() in the current thread (e.g. in the
+     * threads of an agent, so they log to the logger of the game they simulate).
+     *
+     * @param local logger to use in this thread, or null to use the shared one.
+     */
+    public static void setThreadInstance(Logger local) {
+        if (local == null)
+            threadInstance.remove();
+        else
+            threadInstance.set(local);
+    }
+
+    /**
+     * Makes the current thread use the shared logger again.
+     */
+    public static void removeThreadInstance() {
+        threadInstance.remove();
     }
 
     /**
@@ -57,7 +96,7 @@ public class Logger {
      * Sends all messages to the console in one batch Flushes the message log
      * after this is done to prepare for a new game
      */
-    public void printMessages() {
+    public synchronized void printMessages() {
         System.out.println("*** Logged Messages ***");
         for (Message msg : messages) {
             System.out.println(msg.toString());
@@ -69,7 +108,7 @@ public class Logger {
      * Get the number of error and warning messages combined
      * @return 	number of error and warning messages
      */
-    public int getMessageCount() {
+    public synchronized int getMessageCount() {
         return messages.size();
     }
 
@@ -78,7 +117,7 @@ public class Logger {
      * @param type 0 warnings, 1 errors
      * @return	number of errors or warnings
      */
-    public int getMessageCount(int type) {
+    public synchronized int getMessageCount(int type) {
         int result = 0;
         for (int i=0; i<messages.size(); i++){
             if(messages.get(i).getType() == type){
@@ -94,7 +133,7 @@ public class Logger {
      * @param m
      *            the message to be added to messages
      */
-    public void addMessage(Message m) {
+    public synchronized void addMessage(Message m) {
         if(active){
             messages.add(m);
         }
@@ -103,7 +142,7 @@ public class Logger {
     /**
      * Empties the messages list of all messages
      */
-    public void flushMessages() {
+    public synchronized void flushMessages() {
         messages.clear();
     }
 
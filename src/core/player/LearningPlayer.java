@@ -4,12 +4,14 @@ import core.competition.CompetitionParameters;
 import core.game.SerializableStateObservation;
 import core.game.StateObservation;
 import core.game.StateObservationMulti;
+import core.vgdl.VGDLViewer;
 import ontology.Types;
 import tools.ElapsedCpuTimer;
 import tracks.singleLearning.utils.Comm;
 import tracks.singleLearning.utils.PipeComm;
 import tracks.singleLearning.utils.SocketComm;
 
+import java.awt.image.BufferedImage;
 import java.io.IOException;
 
 
@@ -23,6 +25,11 @@ public class LearningPlayer extends Player {
      */
     private Comm comm;
 
+    /**
+     * Viewer of the game, which captures the frames sent as images (null if there is none).
+     */
+    private VGDLViewer viewer;
+
     /**
      * Learning Player constructor.
      * Creates a new server side communication channel for every player.
@@ -44,6 +51,14 @@ public class LearningPlayer extends Player {
         return null;
     }
 
+    /**
+     * Sets the viewer of the game played by this player.
+     * @param viewer the viewer, which captures the frames sent as images.
+     */
+    public void setViewer(VGDLViewer viewer) {
+        this.viewer = viewer;
+    }
+
     /**
      * Picks an action. This function is called every game step to request an
      * action from the player. The action returned must be contained in the
@@ -63,22 +78,22 @@ public class LearningPlayer extends Player {
                 case JSON:
                     so.currentGameState = Types.GAMESTATES.ACT_STATE;
                     sso = new SerializableStateObservation(so);
-                    comm.commSend(sso.serialize(null));
+                    comm.commSend(sso);
                     break;
                 case IMAGE:
                     // Set the game state to the appropriate state and the millisecond counter, then send the serialized observation.
                     so.currentGameState = Types.GAMESTATES.ACT_STATE;
-                    sso = new SerializableStateObservation(so, false);
+                    sso = new SerializableStateObservation(so, false, getCapturedFrame());
 
                     // Used for debugging
 //                    System.out.println(sso.toString());
-                    comm.commSend(sso.serialize(null));
+                    comm.commSend(sso);
                     break;
                 case BOTH:
                     // Set the game state to the appropriate state and the millisecond counter, then send the serialized observation.
                     so.currentGameState = Types.GAMESTATES.ACT_STATE;
-                    sso = new SerializableStateObservation(so, true);
-                    comm.commSend(sso.serialize(null));
+                    sso = new SerializableStateObservation(so, true, getCapturedFrame());
+                    comm.commSend(sso);
                     break;
                 default:
                     System.err.println("LearningPlayer: act(): This should never happen.");
@@ -113,6 +128,14 @@ public class LearningPlayer extends Player {
 
     }
 
+    /**
+     * Gets the last frame captured by the viewer of the game.
+     * @return the frame, or null if there is no viewer or it hasn't captured any.
+     */
+    private BufferedImage getCapturedFrame() {
+        return viewer == null ? null : viewer.getCapturedFrame();
+    }
+
     /***
      * @param so           State observation of the current game in its initial state
      * @param isValidation true if the level to play is a validation one.
@@ -126,7 +149,7 @@ public class LearningPlayer extends Player {
             SerializableStateObservation sso = new SerializableStateObservation(so);
             sso.isValidation = isValidation;
 
-            comm.commSend(sso.serialize(null));
+            comm.commSend(sso);
             String initResponse = comm.commRecv();
 
             if (initResponse.equals("INIT_FAILED"))
@@ -50,7 +50,7 @@ public class MultiSpriteCounterSubTypes extends Termination
 
         if(itype1 != -1) countAcum += game.getNumSprites(itype1) - game.getNumDisabledSprites(itype1);
 
-        if(countAcum == limit && canEnd) {
+        if(countAcum == limit && canEnd()) {
 
             ArrayList<Integer> subtypes = game.getSubTypes(itype1);
             int countAcumSubTypes = 0;
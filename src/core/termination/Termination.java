@@ -13,12 +13,17 @@ import core.game.Game;
  * Time: 18:47
  * This is a Java port from Tom Schaul's VGDL - https://github.com/schaul/py-vgdl
  */
-public abstract class Termination {
+public abstract class Termination implements Cloneable {
 
     public String win;
     public int limit;
     public boolean count_score = false;
-    public static boolean canEnd = true;
+
+    /**
+     * Indicates if counter terminations can end the game (see StopCounter). It is kept per
+     * thread, so games played in parallel don't affect each other.
+     */
+    private static final ThreadLocal<Boolean> canEnd = ThreadLocal.withInitial(() -> true);
 
     public void parseParameters(TerminationContent content)
     {
@@ -27,6 +32,39 @@ public abstract class Termination {
 
     public abstract boolean isDone(Game game);
 
+    /**
+     * Creates a copy of this termination, with the same parameters. Some terminations keep
+     * the winners of their last check in fields, so states advanced in different threads use
+     * their own copies of the terminations (see StateObservation.copyForThread()).
+     * @return the copy of this termination.
+     */
+    @Override
+    public Termination clone() {
+        try {
+            return (Termination) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Checks if counter terminations can end the game.
+     * @return false if a StopCounter is preventing it.
+     */
+    public static boolean canEnd()
+    {
+        return canEnd.get();
+    }
+
+    /**
+     * Sets if counter terminations can end the game.
+     * @param value true if they can end it.
+     */
+    public static void setCanEnd(boolean value)
+    {
+        canEnd.set(value);
+    }
+
     public boolean isFinished(Game game)
     {
         //It's finished if the player pressed ESCAPE or the game is over..
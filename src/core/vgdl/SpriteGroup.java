@@ -24,6 +24,23 @@ public class SpriteGroup
     //private ConcurrentHashMap<Integer, VGDLSprite> sprites;
     private ArrayList<VGDLSprite> sprites;
 
+    /**
+     * Indicates if the list of sprites is shared with another group (see share()).
+     * In that case, the list is copied before it is modified.
+     */
+    private boolean shared;
+
+    /**
+     * Number of sprites of this group killed in the current game step (see removeKilled()).
+     */
+    private int numKilled;
+
+    /**
+     * Number of disabled sprites in this group. Sprites are disabled through
+     * disableSprite(), so this is kept up to date as sprites are added and removed.
+     */
+    private int numDisabled;
+
     /**
      * Creates a new SpriteGroup, specifying the type of sprites this will hold.
      * @param itype type of sprite for the SpriteGroup.
@@ -34,6 +51,59 @@ public class SpriteGroup
         sprites = new ArrayList<VGDLSprite>(100);
     }
 
+    /**
+     * Creates a new SpriteGroup that shares the list of sprites of this one. The list
+     * is copied (copy on write) by the first group that modifies it.
+     * @return the new sprite group.
+     */
+    public SpriteGroup share()
+    {
+        SpriteGroup group = new SpriteGroup(itype, sprites);
+        group.numDisabled = numDisabled;
+        this.shared = true;
+        return group;
+    }
+
+    /**
+     * Makes another group share the list of sprites of this one (see share()), replacing
+     * the sprites it had.
+     * @param group the group to share the sprites with.
+     */
+    public void shareInto(SpriteGroup group)
+    {
+        group.itype = itype;
+        group.sprites = sprites;
+        group.shared = true;
+        group.numKilled = 0;
+        group.numDisabled = numDisabled;
+        this.shared = true;
+    }
+
+    /**
+     * Private constructor for shared groups.
+     * @param itype type of sprite for the SpriteGroup.
+     * @param sprites list of sprites, shared with another group.
+     */
+    private SpriteGroup(int itype, ArrayList<VGDLSprite> sprites)
+    {
+        this.itype = itype;
+        this.sprites = sprites;
+        this.shared = true;
+    }
+
+    /**
+     * Makes sure the list of sprites of this group is not shared with any other group,
+     * so it can be modified.
+     */
+    public void detach()
+    {
+        if(shared)
+        {
+            sprites = new ArrayList<VGDLSprite>(sprites);
+            shared = false;
+        }
+    }
+
     /**
      * Adds an sprite to the collection.
      * @param spriteId Unique ID of the sprite to add
@@ -41,7 +111,9 @@ public class SpriteGroup
      */
     public void addSprite(int spriteId, VGDLSprite sprite)
     {
+        detach();
         sprites.add(sprite);
+        if(sprite.is_disabled()) numDisabled++;
     }
 
 
@@ -51,8 +123,11 @@ public class SpriteGroup
      */
     public void addAllSprites(Collection<VGDLSprite> spritesToAdd)
     {
-        for(VGDLSprite sp : spritesToAdd)
+        detach();
+        for(VGDLSprite sp : spritesToAdd) {
             sprites.add(sp);
+            if(sp.is_disabled()) numDisabled++;
+        }
     }
 
 
@@ -63,12 +138,16 @@ public class SpriteGroup
      */
     public void copyAllSprites(Collection<VGDLSprite> spritesToCopy)
     {
-        for(VGDLSprite sp : spritesToCopy)
+        detach();
+        for(VGDLSprite sp : spritesToCopy) {
             sprites.add(sp.copy());
+            if(sp.is_disabled()) numDisabled++;
+        }
     }
 
      /**
      * Gets the collection of sprites, as a ConcurrentHashMap [KEY => VALUE].
+     * The list must not be modified if the group is shared (see detach()).
      * @return the TreeMap with the Sprites.
      */
     public ArrayList<VGDLSprite> getSprites()
@@ -105,10 +184,71 @@ public class SpriteGroup
     /**
      * Removes an sprite.
      * @param sprite the sprite to remove.
+     * @return true if the sprite was in this group.
      */
-    public void removeSprite(VGDLSprite sprite)
+    public boolean removeSprite(VGDLSprite sprite)
     {
-        sprites.remove(sprite);
+        detach();
+        if(!sprites.remove(sprite))
+            return false;
+        if(sprite.is_disabled()) numDisabled--;
+        return true;
+    }
+
+    /**
+     * Marks a sprite of this group as killed. It is removed by the next call to removeKilled().
+     * @param sprite the sprite to kill.
+     */
+    public void killSprite(VGDLSprite sprite)
+    {
+        sprite.killed = true;
+        numKilled++;
+    }
+
+    /**
+     * Removes all the sprites killed (see killSprite()), in a single pass through the list
+     * of sprites. The order of the remaining sprites doesn't change.
+     * @return the number of sprites removed.
+     */
+    public int removeKilled()
+    {
+        if(numKilled == 0)
+            return 0;
+        numKilled = 0;
+        detach();
+        int numSprites = sprites.size();
+        sprites.removeIf(sp -> {
+            if(sp.killed && sp.is_disabled()) numDisabled--;
+            return sp.killed;
+        });
+        return numSprites - sprites.size();
+    }
+
+    /**
+     * Replaces the sprite at a given position in the sprite list.
+     * @param idx index of the sprite to replace.
+     * @param sprite the new sprite.
+     */
+    public void setSprite(int idx, VGDLSprite sprite)
+    {
+        detach();
+        if(sprites.set(idx, sprite).is_disabled()) numDisabled--;
+        if(sprite.is_disabled()) numDisabled++;
+    }
+
+    /**
+     * Gets the position of a sprite in the sprite list. Sprites are compared
+     * by reference.
+     * @param sprite the sprite to look for.
+     * @return the index of the sprite, or -1 if it is not in this group.
+     */
+    public int indexOf(VGDLSprite sprite)
+    {
+        int n = sprites.size();
+        for(int i = 0; i < n; ++i)
+            if(sprites.get(i) == sprite)
+                return i;
+        return -1;
     }
 
     /**
@@ -149,7 +289,9 @@ public class SpriteGroup
      */
     public void clear()
     {
+        detach();
         sprites.clear();
+        numKilled = numDisabled = 0;
     }
 
     /**
@@ -166,11 +308,19 @@ public class SpriteGroup
      * @return the number of disabled sprites
      */
     public int numDisabledSprites() {
-        int acum = 0;
-        for (VGDLSprite sp: sprites) {
-            if (sp.is_disabled()) acum++;
+        return numDisabled;
+    }
+
+    /**
+     * Disables a sprite of this group (see VGDLSprite.setDisabled()).
+     * @param sprite the sprite to disable.
+     */
+    public void disableSprite(VGDLSprite sprite)
+    {
+        if(!sprite.is_disabled()) {
+            sprite.setDisabled(true);
+            numDisabled++;
         }
-        return acum;
     }
 
     /**
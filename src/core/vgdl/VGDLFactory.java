@@ -122,29 +122,30 @@ public class VGDLFactory
 
 
     /**
-     * Singleton reference to game/sprite factory
+     * Singleton reference to game/sprite factory. It only holds the caches of classes, which
+     * are the same for all games, so it is shared by all threads.
      */
-    private static VGDLFactory factory;
+    private static final VGDLFactory factory = new VGDLFactory();
 
     /**
      * Cache for registered games.
      */
-    public static HashMap<String, Class> registeredGames;
+    public static volatile HashMap<String, Class> registeredGames;
 
     /**
      * Cache for registered sprites.
      */
-    public static HashMap<String, Class> registeredSprites;
+    public static volatile HashMap<String, Class> registeredSprites;
 
     /**
      * Cache for registered effects.
      */
-    public static HashMap<String, Class> registeredEffects;
+    public static volatile HashMap<String, Class> registeredEffects;
 
     /**
      * Cache for registered effects.
      */
-    public static HashMap<String, Class> registeredTerminations;
+    public static volatile HashMap<String, Class> registeredTerminations;
 
     /**
      * Default private constructor of this singleton.
@@ -152,31 +153,38 @@ public class VGDLFactory
     private VGDLFactory(){}
 
     /**
-     * Initializes the maps for caching classes.
+     * Initializes the maps for caching classes. The maps are built before being published,
+     * so games can be parsed in other threads while this is called.
      */
+    @SuppressWarnings("rawtypes")
     public void init()
     {
-        registeredGames = new HashMap<String, Class>();
-        registeredGames.put("BasicGame", BasicGame.class);
-        registeredGames.put("GameSpace", GameSpace.class);
+        HashMap<String, Class> games = new HashMap<String, Class>();
+        games.put("BasicGame", BasicGame.class);
+        games.put("GameSpace", GameSpace.class);
 
-        registeredSprites = new HashMap<String, Class>();
+        HashMap<String, Class> sprites = new HashMap<String, Class>();
         for(int i = 0;  i < spriteStrings.length; ++i)
         {
-            registeredSprites.put(spriteStrings[i], spriteClasses[i]);
+            sprites.put(spriteStrings[i], spriteClasses[i]);
         }
 
-        registeredEffects  = new HashMap<String, Class>();
+        HashMap<String, Class> effects  = new HashMap<String, Class>();
         for(int i = 0;  i < effectStrings.length; ++i)
         {
-            registeredEffects.put(effectStrings[i], effectClasses[i]);
+            effects.put(effectStrings[i], effectClasses[i]);
         }
 
-        registeredTerminations = new HashMap<String, Class>();
+        HashMap<String, Class> terminations = new HashMap<String, Class>();
         for(int i = 0;  i < terminationStrings.length; ++i)
         {
-            registeredTerminations.put(terminationStrings[i], terminationClasses[i]);
+            terminations.put(terminationStrings[i], terminationClasses[i]);
         }
+
+        registeredGames = games;
+        registeredSprites = sprites;
+        registeredEffects = effects;
+        registeredTerminations = terminations;
     }
 
     /**
@@ -185,8 +193,6 @@ public class VGDLFactory
      */
     public static VGDLFactory GetInstance()
     {
-        if(factory == null)
-            factory = new VGDLFactory();
         return factory;
     }
 
@@ -218,6 +224,7 @@ public class VGDLFactory
 
     /**
      * Creates a new sprite with a given dimension in a certain position. Parameters are passed as SpriteContent.
+     * Sprite types are looked up in the registry of the game (see Game.getRegistry()).
      * @param game Game that is creating the sprite.
      * @param content parameters for the sprite, including its class.
      * @param position position of the object.
@@ -230,6 +237,9 @@ public class VGDLFactory
 
         decorateContent(game, content);
 
+        VGDLRegistry previous = null;
+        if(game != null)
+            previous = VGDLRegistry.bind(game.getRegistry());
         try{
             Class spriteClass = registeredSprites.get(content.referenceClass);
             Constructor spriteConstructor = spriteClass.getConstructor
@@ -248,6 +258,11 @@ public class VGDLFactory
             e.printStackTrace();
             System.out.println("Error creating sprite " + content.identifier + " of class " + content.referenceClass);
         }
+        finally
+        {
+            if(game != null)
+                VGDLRegistry.setThreadInstance(previous);
+        }
 
         return null;
     }
@@ -14,9 +14,16 @@ import java.util.TreeMap;
 public class VGDLRegistry
 {
     /**
-     * Singleton instance of this class.
+     * Shared instance of this class, used by default when no game is given (e.g. by the
+     * parser). Each game keeps the registry it was parsed with (see Game.getRegistry()).
      */
-    private static VGDLRegistry registry;
+    private static volatile VGDLRegistry registry;
+
+    /**
+     * Registry used by the current thread instead of the shared one, if set.
+     * This allows playing different games in parallel (see setThreadInstance()).
+     */
+    private static final ThreadLocal<VGDLRegistry> threadRegistry = new ThreadLocal<VGDLRegistry>();
 
     /**
      * Maps strings to int. Strings are VGDL identifiers for SPRITE TYPES,
@@ -43,12 +50,81 @@ public class VGDLRegistry
      */
     public static VGDLRegistry GetInstance()
     {
-        if(registry == null)
+        VGDLRegistry local = threadRegistry.get();
+        if(local != null)
+            return local;
+
+        VGDLRegistry shared = registry;
+        if(shared == null)
         {
-            registry = new VGDLRegistry();
-            registry.init();
+            synchronized (VGDLRegistry.class)
+            {
+                shared = registry;
+                if(shared == null)
+                {
+                    shared = new VGDLRegistry();
+                    shared.init();
+                    registry = shared;
+                }
+            }
         }
-        return registry;
+        return shared;
+    }
+
+    /**
+     * Replaces the registry returned by GetInstance() in the current thread with a new,
+     * empty one, to parse a new game. Unlike init(), games parsed before keep their
+     * registry untouched, so they can still be played (e.g. in other threads).
+     * @return the new registry.
+     */
+    public static VGDLRegistry resetInstance()
+    {
+        if(threadRegistry.get() != null)
+            return createThreadInstance();
+
+        VGDLRegistry shared = new VGDLRegistry();
+        shared.init();
+        registry = shared;
+        return shared;
+    }
+
+    /**
+     * Creates a new, empty registry and makes it the one returned by GetInstance() in the
+     * current thread.
+     * @return the new registry.
+     */
+    public static VGDLRegistry createThreadInstance()
+    {
+        VGDLRegistry local = new VGDLRegistry();
+        local.init();
+        threadRegistry.set(local);
+        return local;
+    }
+
+    /**
+     * Sets the registry returned by GetInstance() in the current thread. Each game must be
+     * played with the registry it was parsed with.
+     * @param local registry to use in this thread, or null to use the shared one.
+     */
+    public static void setThreadInstance(VGDLRegistry local)
+    {
+        if(local == null)
+            threadRegistry.remove();
+        else
+            threadRegistry.set(local);
+    }
+
+    /**
+     * Sets the registry returned by GetInstance() in the current thread, and returns the
+     * previous one, to be restored afterwards with setThreadInstance().
+     * @param local registry to use in this thread.
+     * @return the registry of this thread before this call, or null if it used the shared one.
+     */
+    public static VGDLRegistry bind(VGDLRegistry local)
+    {
+        VGDLRegistry previous = threadRegistry.get();
+        threadRegistry.set(local);
+        return previous;
     }
 
     /**
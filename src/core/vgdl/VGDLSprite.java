@@ -238,6 +238,17 @@ public abstract class VGDLSprite {
      */
     public String orientedImg;
 
+    /**
+     * Indicates if this sprite is never drawn (see Game.setHeadless()). Headless sprites
+     * keep no images, color or animation state.
+     */
+    public boolean headless;
+
+    /**
+     * Images of headless sprites (none).
+     */
+    private static final HashMap<String,ArrayList<Image>> NO_IMAGES = new HashMap<String,ArrayList<Image>>();
+
     /**
      * Indicates if this sprite is an NPC.
      */
@@ -307,6 +318,42 @@ public abstract class VGDLSprite {
      */
     public double rotation;
 
+    /**
+     * Game (copy-on-write token, see Game.spriteOwner) that can modify this sprite in place.
+     * It is not copied by copyTo(): copies belong to whoever creates them.
+     */
+    public Object owner;
+
+    /**
+     * Next game tick whose bookkeeping (lastmove, frameRemaining) has not been applied to
+     * this sprite yet. Idle sprites shared between forward models are not ticked, and catch
+     * up with the skipped ticks when they are copied (see catchUp()).
+     */
+    public int idleTick;
+
+    /**
+     * Indicates that this sprite has been killed in the current game step, and will be
+     * removed from the game at the end of it (see Game.killSprite()). Sprites are owned
+     * by the game before being killed, so this is never set in a shared sprite.
+     */
+    public boolean killed;
+
+    /**
+     * Classes of sprites that use the default (passive only) preMovement() and update().
+     */
+    private static final ClassValue<Boolean> DEFAULT_UPDATE = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                return type.getMethod("update", Game.class).getDeclaringClass() == VGDLSprite.class
+                        && type.getMethod("preMovement").getDeclaringClass() == VGDLSprite.class
+                        && type.getMethod("updatePassive").getDeclaringClass() == VGDLSprite.class;
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+    };
+
     /**
      * Multipliers for sprite's rectangle size
      */
@@ -385,14 +432,29 @@ public abstract class VGDLSprite {
 
     public void setRect(Vector2d position, Dimension size)
     {
-        Rectangle r = new Rectangle((int) position.x, (int) position.y, (int) (size.width*wMult), (int) (size.height*hMult));
-        setRect(r);
+        setRect((int) position.x, (int) position.y, (int) (size.width*wMult), (int) (size.height*hMult));
     }
 
 
     public void setRect(Rectangle rectangle)
     {
-        rect = new Rectangle(rectangle);
+        setRect(rectangle.x, rectangle.y, rectangle.width, rectangle.height);
+    }
+
+    /**
+     * Sets the position and dimensions of the sprite. The rectangle of the sprite is
+     * modified in place: it belongs to this sprite only (see copyTo()).
+     * @param x x coordinate of the sprite.
+     * @param y y coordinate of the sprite.
+     * @param width width of the sprite.
+     * @param height height of the sprite.
+     */
+    public void setRect(int x, int y, int width, int height)
+    {
+        if(rect == null)
+            rect = new Rectangle(x, y, width, height);
+        else
+            rect.setBounds(x, y, width, height);
         bucket = rect.y / rect.height;
         bucketSharp = (rect.y % rect.height) == 0;
     }
@@ -486,9 +548,12 @@ public abstract class VGDLSprite {
      */
     public void preMovement()
     {
-        lastrect = new Rectangle(rect);
+        lastrect.setBounds(rect);
         lastmove += 1;
 
+        if(headless)
+            return;
+
         frameRemaining -= 1;
 
         if(images.size() > 0) {
@@ -527,6 +592,39 @@ public abstract class VGDLSprite {
         }
     }
 
+    /**
+     * Checks if a game tick would leave this sprite unchanged, apart from the
+     * lastmove and frameRemaining counters (i.e. preMovement() and update() do nothing else).
+     * @return true if this sprite is idle.
+     */
+    public boolean isIdle()
+    {
+        if(is_avatar || disabled || timeToLive != -1 || !rect.equals(lastrect))
+            return false;
+        if(!is_static && !only_active &&
+                (physicstype != Types.GRID || isFirstTick || (speed != 0 && is_oriented)))
+            return false;
+        if(images != null && images.size() > 0 && (frameRate > 0 || !autotiling))
+            return false;
+        return DEFAULT_UPDATE.get(getClass());
+    }
+
+    /**
+     * Applies the bookkeeping of the idle ticks skipped by this sprite, up to (and excluding)
+     * the given game tick.
+     * @param tick first game tick not played yet for this sprite.
+     */
+    public void catchUp(int tick)
+    {
+        if(tick > idleTick && isIdle())
+        {
+            lastmove += tick - idleTick;
+            if(!headless)
+                frameRemaining -= tick - idleTick;
+        }
+        idleTick = tick;
+    }
+
 
     /**
      * Updates the orientation of the avatar to match the orientation parameter.
@@ -539,7 +637,7 @@ public abstract class VGDLSprite {
     {
         if(!this.is_oriented) return false;
         if(this.orientation.equals(orientation)) return false;
-        this.orientation = orientation.copy();
+        this.orientation = orientation; //Directions are immutable.
         return true;
     }
 
@@ -608,8 +706,23 @@ public abstract class VGDLSprite {
      * @return the direction.
      */
     public Vector2d lastDirection() {
-        return new Vector2d(rect.getMinX() - lastrect.getMinX(),
-                rect.getMinY() - lastrect.getMinY());
+        return new Vector2d(lastDirectionX(), lastDirectionY());
+    }
+
+    /**
+     * Returns the x coordinate of the last direction this sprite is following (see lastDirection()).
+     * @return the horizontal displacement of the sprite in its last move.
+     */
+    public int lastDirectionX() {
+        return rect.x - lastrect.x;
+    }
+
+    /**
+     * Returns the y coordinate of the last direction this sprite is following (see lastDirection()).
+     * @return the vertical displacement of the sprite in its last move.
+     */
+    public int lastDirectionY() {
+        return rect.y - lastrect.y;
     }
 
     /**
@@ -758,10 +871,9 @@ public abstract class VGDLSprite {
         if(!on_ground && sp.solid)
         {
             //No need to keep checking. Actually, we shouldn't (we won't intersect with all sprites!).
-            Rectangle test_rect = new Rectangle(this.rect);
-            test_rect.setLocation(this.rect.x,this.rect.y+3);
-
-            this.on_ground = test_rect.intersects(sp.rect) && otherHigher && goingDown;
+            //Checks this rectangle, 3 pixels lower.
+            this.on_ground = sp.rect.intersects(this.rect.x, this.rect.y+3, this.rect.width, this.rect.height)
+                    && otherHigher && goingDown;
         }
 
 
@@ -983,6 +1095,21 @@ public abstract class VGDLSprite {
     }
 
 
+    /**
+     * Makes this sprite headless: it drops its images, color and animation state, and
+     * doesn't animate anymore. Copies of headless sprites are headless.
+     */
+    public void setHeadless()
+    {
+        headless = true;
+        color = null;
+        image = null;
+        images = NO_IMAGES;
+        img = orientedImg = null;
+        currentFrame = -1;
+        frameRemaining = 0;
+    }
+
     /**
      * Loads the image that represents this sprite, using its string name as reference.
      */
@@ -1106,6 +1233,27 @@ public abstract class VGDLSprite {
         is_from_avatar = fromAvatar;
     }
 
+    /**
+     * Returns a hash of the state of this sprite: its type, position, orientation,
+     * health points and resources. Two sprites in the same state have the same hash.
+     * The state hash of a game (see ForwardModel.stateHash()) adds up these hashes.
+     * @return the hash of this sprite.
+     */
+    public long stateHash()
+    {
+        long hash = Utils.hashMix(getType(), ((long) rect.x << 32) | (rect.y & 0xFFFFFFFFL));
+        hash = Utils.hashMix(hash, Double.doubleToLongBits(orientation.x()));
+        hash = Utils.hashMix(hash, Double.doubleToLongBits(orientation.y()));
+        hash = Utils.hashMix(hash, disabled ? -healthPoints - 1 : healthPoints);
+        for(Map.Entry<Integer, Integer> entry : resources.entrySet())
+        {
+            //Resources removed are kept with a value of 0: they don't count.
+            if(entry.getValue() != 0)
+                hash = Utils.hashMix(hash, ((long) entry.getKey() << 32) | (entry.getValue() & 0xFFFFFFFFL));
+        }
+        return hash;
+    }
+
 
     /**
      * Returns a string representation of this string, including its name and position.
@@ -1144,7 +1292,7 @@ public abstract class VGDLSprite {
         toSprite.physics = this.physics; //Object reference, but should be ok.
         toSprite.shrinkfactor = this.shrinkfactor;
         toSprite.is_oriented = this.is_oriented;
-        toSprite.orientation = new Direction(orientation.x(), orientation.y());
+        toSprite.orientation = this.orientation; //Directions are immutable.
         toSprite.rect = new Rectangle(this.rect.x, this.rect.y, this.rect.width, this.rect.height);
         toSprite.lastrect =  new Rectangle(this.lastrect.x, this.lastrect.y, this.lastrect.width, this.lastrect.height);
         toSprite.lastmove = this.lastmove;
@@ -1152,11 +1300,8 @@ public abstract class VGDLSprite {
         toSprite.singleton = this.singleton;
         toSprite.is_resource = this.is_resource;
         toSprite.portal = this.portal;
-        toSprite.color = this.color;
         toSprite.draw_arrow = this.draw_arrow;
         toSprite.is_npc = this.is_npc;
-        toSprite.image = this.image;
-        toSprite.images = this.images;
         toSprite.spriteID = this.spriteID;
         toSprite.is_from_avatar = this.is_from_avatar;
         toSprite.bucket = this.bucket;
@@ -1165,8 +1310,6 @@ public abstract class VGDLSprite {
         toSprite.autotiling = this.autotiling;
         toSprite.randomtiling = this.randomtiling;
         toSprite.frameRate = this.frameRate;
-        toSprite.currentFrame = this.currentFrame;
-        toSprite.frameRemaining = this.frameRemaining;
         toSprite.rotateInPlace = this.rotateInPlace;
         toSprite.isFirstTick = this.isFirstTick;
         toSprite.hidden = this.hidden;
@@ -1175,17 +1318,30 @@ public abstract class VGDLSprite {
         toSprite.limitHealthPoints = this.limitHealthPoints;
         toSprite.timeToLive = this.timeToLive;
         toSprite.rotation = this.rotation;
+        toSprite.idleTick = this.idleTick;
         toSprite.wMult = this.wMult;
         toSprite.hMult = this.hMult;
         toSprite.on_ground = this.on_ground;
         toSprite.solid = this.solid;
         toSprite.max_speed = this.max_speed;
-        toSprite.img = this.img;
-        toSprite.orientedImg = this.orientedImg;
 
-        toSprite.itypes = new ArrayList<Integer>();
-        for(Integer it : this.itypes)
-            toSprite.itypes.add(it);
+        //Headless sprites have nothing to draw.
+        toSprite.headless = this.headless;
+        if(headless)
+            toSprite.images = NO_IMAGES;
+        else
+        {
+            toSprite.color = this.color;
+            toSprite.image = this.image;
+            toSprite.images = this.images;
+            toSprite.img = this.img;
+            toSprite.orientedImg = this.orientedImg;
+            toSprite.currentFrame = this.currentFrame;
+            toSprite.frameRemaining = this.frameRemaining;
+        }
+
+        //The types of a sprite never change, so copies share them.
+        toSprite.itypes = this.itypes;
 
         toSprite.resources = new TreeMap<Integer, Integer>();
         Set<Map.Entry<Integer, Integer>> entries = this.resources.entrySet();
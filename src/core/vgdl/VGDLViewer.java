@@ -45,6 +45,11 @@ public class VGDLViewer extends JComponent
 
     public boolean justImage = false;
 
+    /**
+     * Last frame captured for learning agents (see captureFrame()).
+     */
+    private BufferedImage capturedFrame;
+
     /**
      * Creates the viewer for the game.
      * @param game game to be displayed
@@ -56,10 +61,11 @@ public class VGDLViewer extends JComponent
         this.player = player;
         if (player instanceof LearningPlayer) {
             LearningPlayer learningPlayer = (LearningPlayer) player;
+            learningPlayer.setViewer(this);
             Types.LEARNING_SSO_TYPE ssoType = learningPlayer.getLearningSsoType();
             if (ssoType == Types.LEARNING_SSO_TYPE.IMAGE ||
                 ssoType == Types.LEARNING_SSO_TYPE.BOTH) {
-                saveImage(CompetitionParameters.SCREENSHOT_FILENAME);
+                captureFrame();
             }
         }
     }
@@ -120,11 +126,38 @@ public class VGDLViewer extends JComponent
 
             if (ssoType == Types.LEARNING_SSO_TYPE.IMAGE ||
                 ssoType == Types.LEARNING_SSO_TYPE.BOTH) {
-                saveImage(CompetitionParameters.SCREENSHOT_FILENAME);
+                captureFrame();
             }
         }
     }
 
+    /**
+     * Paints the game into an image kept in memory, which is reused for every frame.
+     * Learning agents get it with getCapturedFrame(). Each viewer has its own frame,
+     * so games played in parallel don't overwrite each other's frames.
+     */
+    public void captureFrame() {
+        BufferedImage frame = capturedFrame;
+        if (frame == null || frame.getWidth() != size.width || frame.getHeight() != size.height)
+            frame = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_ARGB);
+
+        Graphics2D graphics = frame.createGraphics();
+        graphics.setComposite(AlphaComposite.Clear);
+        graphics.fillRect(0, 0, size.width, size.height);
+        graphics.setComposite(AlphaComposite.SrcOver);
+        paintWithGraphics(graphics);
+        graphics.dispose();
+        capturedFrame = frame;
+    }
+
+    /**
+     * Gets the last frame captured by captureFrame().
+     * @return the frame (with type BufferedImage.TYPE_INT_ARGB), or null if none was captured.
+     */
+    public BufferedImage getCapturedFrame() {
+        return capturedFrame;
+    }
+
     /**
      * Gets the dimensions of the window.
      * @return the dimensions of the window.
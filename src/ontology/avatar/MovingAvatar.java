@@ -230,6 +230,16 @@ public class MovingAvatar extends VGDLSprite {
      */
     public void setWinState(Types.WINNER w) { winState = w; }
 
+    /**
+     * Returns a hash of the state of this avatar, including its score and win state.
+     * @return the hash of this avatar.
+     */
+    @Override
+    public long stateHash() {
+        long hash = Utils.hashMix(super.stateHash(), Double.doubleToLongBits(score));
+        return Utils.hashMix(hash, winState.ordinal());
+    }
+
 
     /**
      * Get this player's ID.
@@ -57,9 +57,10 @@ public class OrientedAvatar extends MovingAvatar
         if(lastMovementType == Types.MOVEMENT.MOVE)
         {
         	if (physicstype == 0){
-        		Vector2d dir = lastDirection();
-        		dir.normalise();
-        		orientation = new Direction(dir.x, dir.y);
+        		//Normalised last direction.
+        		double x = lastDirectionX(), y = lastDirectionY();
+        		double mag = Math.sqrt(x * x + y * y);
+        		orientation = (mag == 0) ? Types.DNONE : new Direction(x / mag, y / mag);
         	}
         }
         //Otherwise, orientation is already updated, no need to change anything.
@@ -22,7 +22,7 @@ import tools.Vector2d;
  * Time: 15:20
  * This is a Java port from Tom Schaul's VGDL - https://github.com/schaul/py-vgdl
  */
-public abstract class Effect{
+public abstract class Effect implements Cloneable{
 
     //Indicates if this effect kills any sprite
     public boolean is_kill_effect = false;
@@ -95,6 +95,21 @@ public abstract class Effect{
      */
     public int executeBatch(VGDLSprite sprite1, ArrayList<VGDLSprite> sprite2list, Game game) {return -1;}
 
+    /**
+     * Creates a copy of this effect, with the same parameters. Some effects keep the outcome
+     * of their last execution in fields (e.g. applyScore), so states advanced in different
+     * threads use their own copies of the effects (see StateObservation.copyForThread()).
+     * @return the copy of this effect.
+     */
+    @Override
+    public Effect clone() {
+        try {
+            return (Effect) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     /**
      * Takes a batch of sprites to collide against at once, and builds the collision boundary with them.
      * @param sprite1 Sprite that collides with the batch
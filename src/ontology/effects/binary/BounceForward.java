@@ -32,13 +32,13 @@ public class BounceForward extends Effect
             return;
         }
 
-        Vector2d dir = new Vector2d(sprite2.lastDirection());
+        Vector2d dir = sprite2.lastDirection();
         dir.normalise();
 
-        if(sprite2.lastDirection().x * sprite2.orientation.x() < 0)
+        if(sprite2.lastDirectionX() * sprite2.orientation.x() < 0)
             dir.x *= -1;
 
-        if(sprite2.lastDirection().y * sprite2.orientation.y() < 0)
+        if(sprite2.lastDirectionY() * sprite2.orientation.y() < 0)
             dir.y *= -1;
 
         //Rectangle r = new Rectangle(sprite1.rect);
@@ -123,7 +123,7 @@ public class TransformToSingleton extends Effect {
                 Types.WINNER win = game.getAvatar(id).getWinState();
                 game.setAvatar((MovingAvatar) newSprite, id);
                 game.getAvatar(id).player = p;
-                game.getAvatar(id).setKeyHandler(Game.ki);
+                game.getAvatar(id).setKeyHandler(game.getKeyHandler());
                 game.getAvatar(id).setScore(score);
                 game.getAvatar(id).setWinState(win);
                 game.getAvatar(id).setPlayerID(id);
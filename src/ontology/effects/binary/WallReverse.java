@@ -24,14 +24,10 @@ import java.util.Comparator;
 public class WallReverse extends Effect
 {
     private double friction;
-    private int lastGameTime;
-    private ArrayList<VGDLSprite> spritesThisCycle;
 
     public WallReverse(InteractionContent cnt)
     {
         super.inBatch = true;
-        lastGameTime = -1;
-        spritesThisCycle = new ArrayList<VGDLSprite>();
         this.parseParameters(cnt);
     }
 
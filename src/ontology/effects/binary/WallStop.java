@@ -1,7 +1,5 @@
 package ontology.effects.binary;
 
-import java.util.ArrayList;
-
 import core.vgdl.VGDLSprite;
 import core.content.InteractionContent;
 import core.game.Game;
@@ -21,13 +19,9 @@ import tools.Vector2d;
 public class WallStop extends Effect
 {
     private double friction;
-    private int lastGameTime;
-    private ArrayList<VGDLSprite> spritesThisCycle;
 
     public WallStop(InteractionContent cnt)
     {
-        lastGameTime = -1;
-        spritesThisCycle = new ArrayList<VGDLSprite>();
         this.parseParameters(cnt);
     }
 
@@ -41,18 +35,6 @@ public class WallStop extends Effect
 	
         // Stop just in front of the wall, removing that velocity component, but possibly sliding along it.
 
-        //Keep in the list, for the current cycle, the sprites that have triggered this event.
-        int currentGameTime = game.getGameTick();
-        if(currentGameTime > lastGameTime)
-        {
-            spritesThisCycle.clear();
-            lastGameTime = currentGameTime;
-        }
-
-        //the event gets triggered only once per time-step on each sprite.
-        if(spritesThisCycle.contains(sprite1))
-            return;
-
         //sprite1.setRect(sprite1.lastrect);
         sprite1.setRect(calculatePixelPerfect(sprite1, sprite2));
 
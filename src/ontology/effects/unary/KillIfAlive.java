@@ -30,7 +30,7 @@ public class KillIfAlive extends Effect {
         }
 	
         //boolean variable set to false to indicate the sprite was not transformed
-    	if (!game.kill_list.contains(sprite2))
+    	if (!game.isKilled(sprite2))
         	game.killSprite(sprite1, false);
     }
 }
@@ -5,7 +5,6 @@ import java.awt.Rectangle;
 import core.vgdl.VGDLSprite;
 import ontology.Types;
 import tools.Direction;
-import tools.Vector2d;
 
 /**
  * Created with IntelliJ IDEA.
@@ -61,17 +60,18 @@ public class ContinuousPhysics extends GridPhysics
         double v1 = (action.x() / (float)sprite.mass) + (sprite.orientation.x() * speed);
         double v2 = (action.y() / (float)sprite.mass) + (sprite.orientation.y() * speed);
 
-        Vector2d dir = new Vector2d(v1, v2);
+        double mag = Math.sqrt(v1 * v1 + v2 * v2);
 
-        double speedD = dir.mag();
+        double speedD = mag;
         if(sprite.max_speed != -1) {
-            speedD = Math.min(dir.mag(), sprite.max_speed);
+            speedD = Math.min(mag, sprite.max_speed);
         }
 
-        dir.normalise();
-        Direction d = new Direction(dir.x, dir.y);
-
-        sprite.orientation = d;
+        //The orientation is the normalised direction.
+        if(mag == 0)
+            sprite.orientation = Types.DNONE;
+        else
+            sprite.orientation = new Direction(v1 / mag, v2 / mag);
         sprite.speed = speedD;
 
         if(action.equals(Types.DNONE))
@@ -89,8 +89,21 @@ public class ContinuousPhysics extends GridPhysics
      */
     public double distance(Rectangle r1, Rectangle r2)
     {
-        double topDiff = r1.getMinY() - r2.getMinY();
-        double leftDiff = r1.getMinX() - r2.getMinX();
+        return distance(r1.x, r1.y, r2.x, r2.y);
+    }
+
+    /**
+     * Euclidean distance between two points.
+     * @param x1 x coordinate of point 1
+     * @param y1 y coordinate of point 1
+     * @param x2 x coordinate of point 2
+     * @param y2 y coordinate of point 2
+     * @return Euclidean distance between the points.
+     */
+    public double distance(int x1, int y1, int x2, int y2)
+    {
+        double topDiff = (double) y1 - y2;
+        double leftDiff = (double) x1 - x2;
         return Math.sqrt(topDiff*topDiff + leftDiff*leftDiff);
     }
 }
@@ -18,4 +18,18 @@ public interface Physics
     public Types.MOVEMENT passiveMovement(VGDLSprite sprite);
     public Types.MOVEMENT activeMovement(VGDLSprite sprite, Direction action, double speed);
     public double distance(Rectangle r1, Rectangle r2);
+
+    /**
+     * Distance between two points, as the distance between the top-left corners of two
+     * rectangles. Physics used in rollouts should override it to avoid allocating them.
+     * @param x1 x coordinate of point 1
+     * @param y1 y coordinate of point 1
+     * @param x2 x coordinate of point 2
+     * @param y2 y coordinate of point 2
+     * @return distance between the points.
+     */
+    public default double distance(int x1, int y1, int x2, int y2)
+    {
+        return distance(new Rectangle(x1, y1, 0, 0), new Rectangle(x2, y2, 0, 0));
+    }
 }
@@ -1,7 +1,6 @@
 package ontology.sprites.npc;
 
 import java.awt.Dimension;
-import java.awt.Rectangle;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.Random;
@@ -109,9 +108,8 @@ public class AlternateChaser extends RandomNPC
         for(Direction act : Types.DBASEDIRS)
         {
             //Calculate the distance if I'd apply this move.
-            Rectangle r = new Rectangle(this.rect);
-            r.translate((int)act.x(), (int)act.y());
-            double newDist = this.physics.distance(r, target.rect);
+            double newDist = this.physics.distance(rect.x + (int)act.x(), rect.y + (int)act.y(),
+                    target.rect.x, target.rect.y);
 
             //depending on getting me closer/farther, if I'm fleeing/chasing, add move:
             if(fleeing && distance<newDist)
@@ -50,7 +50,7 @@ public class Walker extends VGDLSprite
     	super.updatePassive();
 
         double d;
-    	if (this.airsteering || this.lastDirection().x == 0){
+    	if (this.airsteering || this.lastDirectionX() == 0){
     		if (this.orientation.x() > 0){
     			d = 1;
     		}
@@ -62,7 +62,7 @@ public class Walker extends VGDLSprite
     			d = choices[game.getRandomGenerator().nextInt(choices.length)];
     		}
     		Direction dir = new Direction(d,0);
-    		this.orientation = dir.copy();
+    		this.orientation = dir; //Directions are immutable.
     		this.physics.activeMovement(this, dir, this.max_speed);
     	}
 
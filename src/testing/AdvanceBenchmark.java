@@ -0,0 +1,103 @@
+package testing;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Random;
+
+import com.sun.management.ThreadMXBean;
+
+import core.game.Game;
+import core.game.StateObservation;
+import core.vgdl.VGDLFactory;
+import core.vgdl.VGDLParser;
+import core.vgdl.VGDLRegistry;
+import ontology.Types;
+
+/**
+ * Measures the cost of advancing forward models, as agents do in their rollouts: the time
+ * and the bytes allocated by each call to advance(). Each rollout copies the initial state
+ * of the first level of the game, and advances it with random actions. The copies are not
+ * measured, only the calls to advance().
+ *
+ * Usage: java testing.AdvanceBenchmark [game ...] (games from examples/gridphysics).
+ */
+public class AdvanceBenchmark
+{
+    /**
+     * Folder of the games, and games measured if none is given.
+     */
+    public static final String GAMES_PATH = "examples/gridphysics/";
+    public static final String[] DEFAULT_GAMES = new String[]{"aliens", "boulderdash", "chase",
+            "frogs", "missilecommand", "pacman", "portals", "zelda"};
+
+    /**
+     * Rollouts per measure, and maximum number of actions of each rollout.
+     */
+    public static final int ROLLOUTS = 500;
+    public static final int DEPTH = 10;
+
+    /**
+     * Measures done before the reported one, to let the JIT compiler optimize the code.
+     */
+    public static final int WARMUP = 5;
+
+    public static void main(String[] args)
+    {
+        String[] games = args.length > 0 ? args : DEFAULT_GAMES;
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if(!threads.isThreadAllocatedMemorySupported())
+        {
+            System.out.println("This JVM can't measure the memory allocated by a thread.");
+            return;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        System.out.printf("%-16s %12s %14s%n", "game", "ns/advance", "bytes/advance");
+        for(String name : games)
+        {
+            VGDLFactory.GetInstance().init();
+            VGDLRegistry.resetInstance();
+            Game game = new VGDLParser().parseGame(GAMES_PATH + name + ".txt");
+            game.buildLevel(GAMES_PATH + name + "_lvl0.txt", 0);
+            StateObservation state = game.getObservation();
+
+            long[] result = null;
+            for(int i = 0; i <= WARMUP; ++i)
+                result = measure(state, threads);
+
+            System.out.printf("%-16s %12.0f %14.1f%n", name,
+                    result[0] / (double) result[2], result[1] / (double) result[2]);
+        }
+    }
+
+    /**
+     * Plays the rollouts of a measure.
+     * @param state initial state of the rollouts.
+     * @param threads bean to read the memory allocated by this thread.
+     * @return the nanoseconds and bytes spent in advance(), and the number of calls.
+     */
+    private static long[] measure(StateObservation state, ThreadMXBean threads)
+    {
+        long threadId = Thread.currentThread().getId();
+        ArrayList<Types.ACTIONS> actions = state.getAvailableActions();
+        Random random = new Random(0);
+        long time = 0, bytes = 0, calls = 0;
+
+        for(int i = 0; i < ROLLOUTS; ++i)
+        {
+            StateObservation rollout = state.copy();
+            rollout.setNewSeed(i);
+            for(int j = 0; j < DEPTH && !rollout.isGameOver(); ++j)
+            {
+                Types.ACTIONS action = actions.get(random.nextInt(actions.size()));
+                long allocated = threads.getThreadAllocatedBytes(threadId);
+                long start = System.nanoTime();
+                rollout.advance(action);
+                time += System.nanoTime() - start;
+                bytes += threads.getThreadAllocatedBytes(threadId) - allocated;
+                calls++;
+            }
+        }
+        return new long[]{time, bytes, calls};
+    }
+}
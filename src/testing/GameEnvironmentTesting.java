@@ -0,0 +1,43 @@
+package testing;
+
+import java.io.IOException;
+
+import core.game.SerializableStateObservation;
+import core.vgdl.VGDLFactory;
+import ontology.Types;
+import tracks.singleLearning.utils.GameEnvironment;
+
+/**
+ * Checks that the observations of a learning environment (see GameEnvironment) show
+ * the state of the game after the action just played: the avatar of aliens must have
+ * moved after a step to the left.
+ */
+public class GameEnvironmentTesting {
+
+    public static void main(String[] args) throws IOException {
+
+	VGDLFactory.GetInstance().init();
+	String gamesPath = "examples/gridphysics/";
+	GameEnvironment env = new GameEnvironment(gamesPath + "aliens.txt", gamesPath + "aliens_lvl0.txt", 0);
+
+	env.writeObservation();
+	SerializableStateObservation init = env.getLastObservation();
+	check(init.phase == SerializableStateObservation.Phase.INIT, "first observation is not INIT");
+
+	env.step(Types.ACTIONS.ACTION_LEFT);
+	env.writeObservation();
+	SerializableStateObservation act = env.getLastObservation();
+	check(act.phase == SerializableStateObservation.Phase.ACT, "observation after a step is not ACT");
+	check(act.gameTick == 0, "observation after a step is at tick " + act.gameTick);
+	check(act.avatarPosition[0] < init.avatarPosition[0], "avatar at x=" + act.avatarPosition[0]
+		+ " after moving left from x=" + init.avatarPosition[0]);
+	check(act.avatarPosition[1] == init.avatarPosition[1], "avatar moved vertically");
+
+	System.out.println("GameEnvironmentTesting [OK]");
+    }
+
+    private static void check(boolean condition, String error) {
+	if (!condition)
+	    throw new AssertionError(error);
+    }
+}
@@ -0,0 +1,103 @@
+package testing;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import core.game.Game;
+import core.game.StateObservation;
+import core.vgdl.VGDLFactory;
+import core.vgdl.VGDLParser;
+import ontology.Types;
+import tools.TranspositionTable;
+
+/**
+ * Checks the state hash (see StateObservation.stateHash()) and the transposition table
+ * (see TranspositionTable) in a small deterministic game: the avatar moves in a corridor,
+ * and gets a gem each time it walks into a wall.
+ */
+public class StateHashTesting {
+
+    private static final String[] GAME = new String[] {
+	    "BasicGame",
+	    "    SpriteSet",
+	    "        gem > Resource limit=10",
+	    "        avatar > MovingAvatar",
+	    "        wall > Immovable",
+	    "    InteractionSet",
+	    "        avatar wall > changeResource resource=gem value=1",
+	    "        avatar wall > stepBack",
+	    "    LevelMapping",
+	    "        A > avatar",
+	    "        w > wall",
+	    "    TerminationSet",
+	    "        Timeout limit=100 win=True" };
+
+    private static final String[] LEVEL = new String[] { "wwwww", "w.A.w", "wwwww" };
+
+    public static void main(String[] args) throws IOException {
+
+	VGDLFactory.GetInstance().init();
+	File gameFile = File.createTempFile("statehash", ".txt");
+	gameFile.deleteOnExit();
+	try (PrintWriter writer = new PrintWriter(gameFile)) {
+	    for (String line : GAME)
+		writer.println(line);
+	}
+	Game game = new VGDLParser().parseGame(gameFile.getPath());
+	game.buildStringLevel(LEVEL, 0);
+	StateObservation initial = game.getObservation();
+
+	// The same state reached through different sequences of actions.
+	long leftRight = play(initial, Types.ACTIONS.ACTION_LEFT, Types.ACTIONS.ACTION_RIGHT).stateHash();
+	long rightLeft = play(initial, Types.ACTIONS.ACTION_RIGHT, Types.ACTIONS.ACTION_LEFT).stateHash();
+	long stay = play(initial, Types.ACTIONS.ACTION_NIL, Types.ACTIONS.ACTION_NIL).stateHash();
+	check(leftRight == rightLeft, "left-right and right-left have different hashes");
+	check(leftRight == stay, "left-right and staying have different hashes");
+
+	// Different positions.
+	StateObservation left = play(initial, Types.ACTIONS.ACTION_NIL, Types.ACTIONS.ACTION_LEFT);
+	check(left.getAvatarPosition().x < initial.getAvatarPosition().x, "the avatar didn't move");
+	check(left.stateHash() != stay, "different positions have the same hash");
+
+	// Different resources, in the same position.
+	StateObservation gem = play(initial, Types.ACTIONS.ACTION_NIL, Types.ACTIONS.ACTION_UP);
+	check(gem.getAvatarPosition().equals(initial.getAvatarPosition()), "the avatar didn't step back");
+	check(gem.getAvatarResources().size() == 1, "the avatar didn't get a gem");
+	check(gem.stateHash() != stay, "different resources have the same hash");
+
+	// The table finds the states reached through different sequences of actions.
+	TranspositionTable<String> table = new TranspositionTable<String>(16);
+	check(table.capacity() == 16, "capacity " + table.capacity());
+	table.put(leftRight, "center");
+	table.put(left.stateHash(), "left");
+	check("center".equals(table.get(rightLeft)), "transposition not found");
+	check("left".equals(table.get(left.stateHash())), "state not found");
+	check(table.get(gem.stateHash()) == null, "state found before being stored");
+	check(table.size() == 2, "size " + table.size());
+
+	// States in the same entry replace each other.
+	table.clear();
+	table.put(1, "first");
+	table.put(1 + table.capacity(), "second");
+	check(table.get(1) == null, "replaced state found");
+	check("second".equals(table.get(1 + table.capacity())), "replacing state not found");
+	check(table.size() == 1, "size " + table.size());
+	table.remove(1 + table.capacity());
+	check(table.size() == 0, "size " + table.size());
+
+	System.out.println("StateHashTesting [OK]");
+    }
+
+    private static StateObservation play(StateObservation state, Types.ACTIONS... actions) {
+	StateObservation copy = state.copy();
+	for (Types.ACTIONS action : actions)
+	    copy.advance(action);
+	return copy;
+    }
+
+    private static void check(boolean condition, String error) {
+	if (!condition)
+	    throw new AssertionError(error);
+    }
+}
@@ -0,0 +1,115 @@
+package tools;
+
+import java.util.Arrays;
+
+/**
+ * Bounded table that stores a value (e.g. statistics of a search node) for each state,
+ * indexed by the hash of the state (see core.game.StateObservation.stateHash()). It lets
+ * agents share the information of states reached through different sequences of actions.
+ *
+ * The table has a fixed number of entries, so its memory does not grow during the search:
+ * each hash maps to a single entry, and a new state replaces the one stored in its entry.
+ * Values may be lost this way, but never returned for a different hash.
+ *
+ * @param <V> type of the values stored.
+ */
+public class TranspositionTable<V> {
+
+    /**
+     * Hashes of the states stored, and their values (null for empty entries).
+     */
+    private long[] keys;
+    private Object[] values;
+
+    /**
+     * Number of entries minus one (the number of entries is a power of two).
+     */
+    private int mask;
+
+    /**
+     * Number of values stored.
+     */
+    private int size;
+
+    /**
+     * Creates a table.
+     * @param capacity maximum number of values stored (rounded up to a power of two).
+     */
+    public TranspositionTable(int capacity) {
+        int entries = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        keys = new long[entries];
+        values = new Object[entries];
+        mask = entries - 1;
+    }
+
+    /**
+     * Gets the value stored for a state.
+     * @param hash hash of the state.
+     * @return the value of the state, or null if it is not in the table.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long hash) {
+        int idx = index(hash);
+        if (values[idx] != null && keys[idx] == hash)
+            return (V) values[idx];
+        return null;
+    }
+
+    /**
+     * Stores the value of a state, replacing any other state stored in the same entry.
+     * @param hash hash of the state.
+     * @param value value of the state (not null).
+     */
+    public void put(long hash, V value) {
+        int idx = index(hash);
+        if (values[idx] == null)
+            size++;
+        keys[idx] = hash;
+        values[idx] = value;
+    }
+
+    /**
+     * Removes the value stored for a state.
+     * @param hash hash of the state.
+     */
+    public void remove(long hash) {
+        int idx = index(hash);
+        if (values[idx] != null && keys[idx] == hash) {
+            values[idx] = null;
+            size--;
+        }
+    }
+
+    /**
+     * Removes all the values stored.
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Gets the number of values stored.
+     * @return the number of values.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the maximum number of values this table can store.
+     * @return the number of entries of the table.
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Gets the entry of a hash.
+     * @param hash hash of a state.
+     * @return index of its entry.
+     */
+    private int index(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -213,4 +213,19 @@ public class Utils
         return allGames;
     }
 
+    /**
+     * Mixes a value into a hash (SplitMix64 finalizer), so that every bit of the value
+     * affects every bit of the result. Used to build state hashes (see VGDLSprite.stateHash()).
+     * @param hash hash to extend.
+     * @param value value to mix in.
+     * @return the new hash.
+     */
+    public static long hashMix(long hash, long value)
+    {
+        long z = hash + 0x9E3779B97F4A7C15L + value * 0xC2B2AE3D27D4EB4FL;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
 }
@@ -6,6 +6,11 @@ import ontology.Types;
 import tools.Vector2d;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
 
 /**
  * Created by dperez on 14/01/16.
@@ -26,6 +31,29 @@ public class PathFinder {
     private static int[] x_arrNeig = null;
     private static int[] y_arrNeig = null;
 
+    /**
+     * Maximum number of search trees and paths kept in memory.
+     */
+    public static int MAX_TREES = 64;
+    public static int MAX_PATHS = 1024;
+
+    /**
+     * Size of the grid, and obstacle flag of each cell (indexed by x * height + y).
+     */
+    private int width, height;
+    private boolean[] obstacle;
+
+    /**
+     * Search trees from the start cells used recently: parent of each cell in the
+     * shortest path from the start cell (-1 if not reachable).
+     */
+    private LinkedHashMap<Integer, int[]> trees;
+
+    /**
+     * Paths returned recently, indexed by start cell * cells + goal cell.
+     */
+    private LinkedHashMap<Long, ArrayList<Node>> paths;
+
     public PathFinder(ArrayList<Integer> obstacleItypes)
     {
         this.obstacleItypes = obstacleItypes;
@@ -38,16 +66,26 @@ public class PathFinder {
         this.astar = new AStar(this);
 
         init();
-        runAll();
 
-        if(VERBOSE)
-        {
-            for(Integer pathId : astar.pathCache.keySet())
-            {
-                ArrayList<Node> nodes = astar.pathCache.get(pathId);
-                astar.printPath(pathId, nodes);
+        //Obstacles don't change: they are taken from this state only once.
+        width = grid.length;
+        height = grid[0].length;
+        obstacle = new boolean[width * height];
+        for(int i = 0; i < width; ++i)
+            for(int j = 0; j < height; ++j)
+                obstacle[i * height + j] = isObstacle(i, j);
+
+        //Paths are found on demand, from the start cells that are requested.
+        trees = new LinkedHashMap<Integer, int[]>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Integer, int[]> eldest) {
+                return size() > MAX_TREES;
             }
-        }
+        };
+        paths = new LinkedHashMap<Long, ArrayList<Node>>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Long, ArrayList<Node>> eldest) {
+                return size() > MAX_PATHS;
+            }
+        };
     }
 
     private void init()
@@ -70,33 +108,109 @@ public class PathFinder {
         }
     }
 
-    private void runAll()
+    /**
+     * Gets the shortest path between two cells. These are the same paths the all-pairs
+     * search of AStar (findPath with no goal) finds, but they are only computed for the
+     * start cells requested, and the most recent ones are kept in memory.
+     * @param start start position, in cells.
+     * @param end goal position, in cells.
+     * @return the path (without the start cell), or null if there is no path.
+     */
+    public synchronized ArrayList<Node> getPath(Vector2d start, Vector2d end)
     {
-        for(int i = 0; i < grid.length; ++i)
+        int x0 = (int) start.x, y0 = (int) start.y;
+        int x1 = (int) end.x, y1 = (int) end.y;
+        if(!isFree(x0, y0) || !isFree(x1, y1) || (x0 == x1 && y0 == y1))
+            return null;
+
+        int from = x0 * height + y0, to = x1 * height + y1;
+        long pathId = (long) from * obstacle.length + to;
+        ArrayList<Node> path = paths.get(pathId);
+        if(path != null || paths.containsKey(pathId))
+            return path;
+
+        int[] parent = trees.get(from);
+        if(parent == null)
         {
-            for(int j = 0; j < grid[i].length; ++j)
-            {
-                boolean obstacleCell = isObstacle(i,j);
-                if(!obstacleCell)
-                {
-                    if(VERBOSE) System.out.println("Running from (" + i +  "," + j + ")");
-                    runAll(i,j);
-                }
+            parent = search(from);
+            trees.put(from, parent);
+        }
 
+        if(parent[to] != -1)
+        {
+            //Nodes from the goal back to the start.
+            path = new ArrayList<Node>();
+            Node next = null;
+            for(int cell = to; cell != from; cell = parent[cell])
+            {
+                Node node = new Node(new Vector2d(cell / height, cell % height));
+                if(next != null)
+                    next.parent = node;
+                path.add(node);
+                next = node;
             }
+            next.parent = new Node(new Vector2d(x0, y0));
+
+            //The path goes from the start to the goal.
+            Collections.reverse(path);
+            for(Node node : path)
+                node.setMoveDir(node.parent);
         }
+
+        paths.put(pathId, path);
+        return path;
     }
 
-    public ArrayList<Node> getPath(Vector2d start, Vector2d end)
+    /**
+     * Finds the shortest paths from a cell to all the others. Cells are expanded in
+     * the same order as in AStar's all-pairs search, so ties between paths of the same
+     * length are broken in the same way.
+     * @param from start cell.
+     * @return the parent of each cell in its path from 'from' (-1 if not reachable).
+     */
+    private int[] search(int from)
     {
-        return astar.getPath(new Node(start), new Node(end));
-    }
+        int[] parent = new int[obstacle.length];
+        Arrays.fill(parent, -1);
+        final int[] cost = new int[obstacle.length];
+        boolean[] visited = new boolean[obstacle.length];
 
-    private void runAll(int i, int j) {
-        Node start = new Node(new Vector2d(i,j));
-        Node goal = null; //To get all routes.
+        PriorityQueue<Integer> openList = new PriorityQueue<Integer>((a, b) -> Integer.compare(cost[a], cost[b]));
+        visited[from] = true;
+        openList.add(from);
 
-        astar.findPath(start, goal);
+        while(openList.size() != 0)
+        {
+            int node = openList.poll();
+            int x = node / height, y = node % height;
+            for(int i = 0; i < x_arrNeig.length; ++i)
+            {
+                int nx = x + x_arrNeig[i], ny = y + y_arrNeig[i];
+                if(isFree(nx, ny))
+                {
+                    int neighbour = nx * height + ny;
+                    if(!visited[neighbour])
+                    {
+                        visited[neighbour] = true;
+                        cost[neighbour] = cost[node] + 1;
+                        parent[neighbour] = node;
+                        openList.add(neighbour);
+                    }
+                }
+            }
+        }
+        return parent;
+    }
+
+    /**
+     * Checks if a cell is in the grid and is not an obstacle.
+     * @param x column of the cell.
+     * @param y row of the cell.
+     * @return true if the cell can be walked.
+     */
+    private boolean isFree(int x, int y)
+    {
+        return x >= 0 && x < width && y >= 0 && y < height && !obstacle[x * height + y];
     }
 
 
@@ -4,7 +4,9 @@ import java.io.*;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import core.vgdl.VGDLFactory;
 import core.vgdl.VGDLParser;
@@ -13,6 +15,7 @@ import core.competition.CompetitionParameters;
 import core.game.Game;
 import core.game.StateObservation;
 import core.game.StateObservationMulti;
+import core.logging.Logger;
 import core.player.AbstractMultiPlayer;
 import core.player.AbstractPlayer;
 import core.player.Player;
@@ -84,7 +87,7 @@ public class ArcadeMachine {
     public static double[] runOneGame(String game_file, String level_file, boolean visuals, String agentNames,
 	    String actionFile, int randomSeed, int playerID) {
 		VGDLFactory.GetInstance().init(); // This always first thing to do.
-		VGDLRegistry.GetInstance().init();
+		VGDLRegistry.resetInstance();
 
 		if (VERBOSE)
 			System.out.println(" ** Playing game " + game_file + ", level " + level_file + " **");
@@ -199,7 +202,7 @@ public class ArcadeMachine {
      */
     public static double[] replayGame(String game_file, String level_file, boolean visuals, String actionFile) {
 		VGDLFactory.GetInstance().init(); // This always first thing to do.
-		VGDLRegistry.GetInstance().init();
+		VGDLRegistry.resetInstance();
 
 		// First, we create the game to be played..
 		Game toPlay = new VGDLParser().parseGame(game_file);
@@ -393,7 +396,7 @@ public class ArcadeMachine {
      */
     public static void runGames(String game_file, String[] level_files, int level_times, String agentName, String[] actionFiles) {
 	VGDLFactory.GetInstance().init(); // This always first thing to do.
-	VGDLRegistry.GetInstance().init();
+	VGDLRegistry.resetInstance();
 
 	boolean recordActions = false;
 	if (actionFiles != null) {
@@ -424,78 +427,14 @@ public class ArcadeMachine {
 		// played.
 		int randomSeed = new Random().nextInt();
 
-		// build the level in the game.
-		toPlay.buildLevel(level_file, randomSeed);
-
 		String filename = recordActions ? actionFiles[levelIdx * level_times + i] : null;
-
-		// Warm the game up.
-		ArcadeMachine.warmUp(toPlay, CompetitionParameters.WARMUP_TIME);
-
-		// Create the player.
-		String[] agentNames = agentName.split(" ");
-		int no_players = agentNames.length;
-
-		int disqCount = 0; // count how many players disqualified
-		double[] score = new double[no_players]; // store scores for all
-							 // the players
-
-		Player[] players;
-		if (no_players > 1) {
-		    // multi player games
-		    players = new AbstractMultiPlayer[no_players];
-		} else {
-		    // single player games
-		    players = new AbstractPlayer[no_players];
-		}
-
-		for (int j = 0; j < no_players; j++) {
-		    if (no_players > 1) {
-			// multi player
-			players[j] = ArcadeMachine.createMultiPlayer(agentNames[j], filename,
-				toPlay.getObservationMulti(j), randomSeed, j, false);
-		    } else {
-			// single player
-			players[j] = ArcadeMachine.createPlayer(agentNames[j], filename, toPlay.getObservation(),
-				randomSeed, false);
-		    }
-		    score[j] = -1;
-		    if (players[j] == null) {
-				// Something went wrong in the constructor, controller
-				// disqualified
-				// toPlay.disqualify(j);
-				toPlay.getAvatars()[j].disqualify(true);
-
-				disqCount++;
-		    }
-		}
-
-		// Play the game if at least 2 players in multiplayer games or
-		// at least 1 in single player.
-		// Get array of scores back.
-		if ((no_players - disqCount) >= toPlay.no_players) {
-		    score = toPlay.runGame(players, randomSeed);
-		    //score = toPlay.playGame(players, randomSeed, false, 0);
-		    toPlay.printResult();
-		} else {
-		    // Get the score for the result.
-		    score = toPlay.handleResult();
-		    toPlay.printResult();
-		}
-
-		// Finally, when the game is over, we need to tear the players
-		// down.
-		if (!ArcadeMachine.tearPlayerDown(toPlay, players, filename, randomSeed, true)) {
-		    score = toPlay.handleResult();
-		    toPlay.printResult();
-		}
+		double[][] result = playLevel(toPlay, level_file, randomSeed, agentName, filename);
 
 		// Get players stats
-		for (Player player : players)
-		    if (player != null) {
-			int id = player.getPlayerID();
-			scores[id].add(score[id]);
-			victories[id].add(toPlay.getWinner(id) == Types.WINNER.PLAYER_WINS ? 1 : 0);
+		for (int id = 0; id < toPlay.getNoPlayers(); id++)
+		    if (!Double.isNaN(result[0][id])) {
+			scores[id].add(result[0][id]);
+			victories[id].add(result[1][id]);
 		    }
 
 		// reset the game.
@@ -505,17 +444,235 @@ public class ArcadeMachine {
 	    levelIdx++;
 	}
 
+	printResults(game_file, victories, scores);
+	 	//+ " , " + performance.mean());
+    }
+
+    /**
+     * Plays a level of a game with the given agents. Graphics always off.
+     *
+     * @param toPlay game to play, already parsed.
+     * @param level_file file with the level to be played.
+     * @param randomSeed seed for the game.
+     * @param agentName names of the agents (separated by spaces in multi player games).
+     * @param filename file where the actions are recorded, or null.
+     * @return scores (first row) and victories (second row) of each player, NaN for
+     *         players that could not be created.
+     */
+    private static double[][] playLevel(Game toPlay, String level_file, int randomSeed, String agentName,
+	    String filename) {
+	// build the level in the game.
+	toPlay.buildLevel(level_file, randomSeed);
+
+	// Warm the game up.
+	ArcadeMachine.warmUp(toPlay, CompetitionParameters.WARMUP_TIME);
+
+	// Create the player.
+	String[] agentNames = agentName.split(" ");
+	int no_players = agentNames.length;
+
+	int disqCount = 0; // count how many players disqualified
+	double[] score = new double[no_players]; // store scores for all
+						 // the players
+
+	Player[] players;
+	if (no_players > 1) {
+	    // multi player games
+	    players = new AbstractMultiPlayer[no_players];
+	} else {
+	    // single player games
+	    players = new AbstractPlayer[no_players];
+	}
+
+	for (int j = 0; j < no_players; j++) {
+	    if (no_players > 1) {
+		// multi player
+		players[j] = ArcadeMachine.createMultiPlayer(agentNames[j], filename,
+			toPlay.getObservationMulti(j), randomSeed, j, false);
+	    } else {
+		// single player
+		players[j] = ArcadeMachine.createPlayer(agentNames[j], filename, toPlay.getObservation(),
+			randomSeed, false);
+	    }
+	    score[j] = -1;
+	    if (players[j] == null) {
+			// Something went wrong in the constructor, controller
+			// disqualified
+			// toPlay.disqualify(j);
+			toPlay.getAvatars()[j].disqualify(true);
+
+			disqCount++;
+	    }
+	}
+
+	// Play the game if at least 2 players in multiplayer games or
+	// at least 1 in single player.
+	// Get array of scores back.
+	if ((no_players - disqCount) >= toPlay.no_players) {
+	    score = toPlay.runGame(players, randomSeed);
+	    //score = toPlay.playGame(players, randomSeed, false, 0);
+	    toPlay.printResult();
+	} else {
+	    // Get the score for the result.
+	    score = toPlay.handleResult();
+	    toPlay.printResult();
+	}
+
+	// Finally, when the game is over, we need to tear the players
+	// down.
+	if (!ArcadeMachine.tearPlayerDown(toPlay, players, filename, randomSeed, true)) {
+	    score = toPlay.handleResult();
+	    toPlay.printResult();
+	}
+
+	// Get players stats
+	double[][] result = new double[2][toPlay.getNoPlayers()];
+	Arrays.fill(result[0], Double.NaN);
+	Arrays.fill(result[1], Double.NaN);
+	for (Player player : players)
+	    if (player != null) {
+		int id = player.getPlayerID();
+		result[0][id] = score[id];
+		result[1][id] = toPlay.getWinner(id) == Types.WINNER.PLAYER_WINS ? 1 : 0;
+	    }
+	return result;
+    }
+
+    /**
+     * Prints the average victories and scores of each player in a game.
+     *
+     * @param game_file game description file.
+     * @param victories victories of each player.
+     * @param scores scores of each player.
+     */
+    private static void printResults(String game_file, StatSummary[] victories, StatSummary[] scores) {
 	String vict = "", sc = "";
-	for (int i = 0; i < toPlay.no_players; i++) {
+	for (int i = 0; i < victories.length; i++) {
 	    vict += victories[i].mean();
 	    sc += scores[i].mean();
-	    if (i != toPlay.no_players - 1) {
+	    if (i != victories.length - 1) {
 		vict += ", ";
 		sc += ", ";
 	    }
 	}
 	System.out.println("Results in game " + game_file + ", " + vict + " , " + sc);
-	 	//+ " , " + performance.mean());
+    }
+
+    /**
+     * Plays several games, levels and repetitions in parallel, with a bot. Each job (game,
+     * level and repetition) is played in one of the worker threads, with its own random
+     * seed. Each worker parses its own copy of the games, with its own sprite registry and
+     * logger, so jobs don't share any state. The results of each game are printed as in
+     * runGames(), once all jobs are finished. Graphics always off.
+     * Agents must not keep state in static fields, as several of them play at the same time.
+     * If any job fails, the other jobs are still played, but no results are printed: an
+     * exception is thrown with the game, level and repetition of the failed job.
+     *
+     * @param game_files   game description files.
+     * @param level_files  level files of each game (level_files[g] for game_files[g]).
+     * @param level_times  how many times each level has to be played.
+     * @param agentName    names of the agents (separated by spaces in multi player games).
+     * @param numThreads   number of games played at the same time.
+     * @param seed         seed used to generate the seed of each job.
+     */
+    public static void runGamesParallel(String[] game_files, String[][] level_files, int level_times,
+	    String agentName, int numThreads, long seed) {
+	VGDLFactory.GetInstance().init();
+
+	// All jobs, and the seed of each one.
+	ArrayList<int[]> jobs = new ArrayList<int[]>();
+	Random rnd = new Random(seed);
+	for (int g = 0; g < game_files.length; g++)
+	    for (int l = 0; l < level_files[g].length; l++)
+		for (int i = 0; i < level_times; i++)
+		    jobs.add(new int[] { g, l, rnd.nextInt() });
+
+	double[][][] results = new double[jobs.size()][][];
+	Throwable[] errors = new Throwable[jobs.size()];
+	AtomicInteger nextJob = new AtomicInteger();
+	Thread[] workers = new Thread[Math.max(1, Math.min(numThreads, jobs.size()))];
+	for (int w = 0; w < workers.length; w++) {
+	    workers[w] = new Thread(() -> {
+		Logger.createThreadInstance();
+		Game[] games = new Game[game_files.length];
+		VGDLRegistry[] registries = new VGDLRegistry[game_files.length];
+		try {
+		    int j;
+		    while ((j = nextJob.getAndIncrement()) < results.length) {
+			int[] job = jobs.get(j);
+			int g = job[0];
+			try {
+			    if (games[g] == null) {
+				registries[g] = VGDLRegistry.createThreadInstance();
+				games[g] = new VGDLParser().parseGame(game_files[g]);
+			    }
+			    VGDLRegistry.setThreadInstance(registries[g]);
+			    results[j] = playLevel(games[g], level_files[g][job[1]], job[2], agentName, null);
+			    games[g].reset();
+			} catch (Throwable e) {
+			    // The game may have been left in any state, so it is parsed again.
+			    errors[j] = e;
+			    games[g] = null;
+			}
+		    }
+		} finally {
+		    VGDLRegistry.setThreadInstance(null);
+		    Logger.removeThreadInstance();
+		}
+	    }, "ArcadeMachine-" + w);
+	    workers[w].start();
+	}
+
+	for (Thread worker : workers) {
+	    try {
+		worker.join();
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+		return;
+	    }
+	}
+
+	// Failed jobs would leave the results of their games incomplete.
+	RuntimeException failure = null;
+	int j = 0;
+	for (int g = 0; g < game_files.length; g++)
+	    for (int l = 0; l < level_files[g].length; l++)
+		for (int i = 0; i < level_times; i++, j++)
+		    if (errors[j] != null) {
+			RuntimeException e = new RuntimeException("Job failed: game " + game_files[g] + ", level "
+				+ level_files[g][l] + ", repetition " + i, errors[j]);
+			if (failure == null)
+			    failure = e;
+			else
+			    failure.addSuppressed(e);
+		    }
+	if (failure != null)
+	    throw failure;
+
+	// Results are aggregated in the order of the jobs, as in runGames().
+	j = 0;
+	for (int g = 0; g < game_files.length; g++) {
+	    StatSummary[] victories = null, scores = null;
+	    for (int l = 0; l < level_files[g].length; l++)
+		for (int i = 0; i < level_times; i++, j++) {
+		    int no_players = results[j][0].length;
+		    if (victories == null) {
+			victories = new StatSummary[no_players];
+			scores = new StatSummary[no_players];
+			for (int p = 0; p < no_players; p++) {
+			    victories[p] = new StatSummary();
+			    scores[p] = new StatSummary();
+			}
+		    }
+		    for (int id = 0; id < no_players; id++)
+			if (!Double.isNaN(results[j][0][id])) {
+			    scores[id].add(results[j][0][id]);
+			    victories[id].add(results[j][1][id]);
+			}
+		}
+	    if (victories != null)
+		printResults(game_files[g], victories, scores);
+	}
     }
 
     /**
@@ -812,7 +969,7 @@ public class ArcadeMachine {
         }
 
         // Reset input to delete warm-up effects.
-        Game.ki.resetAll();
+        toPlay.getKeyHandler().resetAll();
     }
 
     /**
@@ -34,7 +34,7 @@ public class DesignMachine {
     public DesignMachine(String game_file)
     {
         VGDLFactory.GetInstance().init(); // This always first thing to do.
-        VGDLRegistry.GetInstance().init();
+        VGDLRegistry.resetInstance();
 
         // First, we create the game to be played..
         toPlay = (GameSpace) (new VGDLParser().parseGame(game_file));
@@ -35,7 +35,7 @@ public class LearningMachine {
     public static double[] runOneGame(String game_file, String level_file, boolean visuals,
                                       String[] cmd, String actionFile, int randomSeed) throws IOException {
         VGDLFactory.GetInstance().init(); //This always first thing to do.
-        VGDLRegistry.GetInstance().init();
+        VGDLRegistry.resetInstance();
         CompetitionParameters.IS_LEARNING = true;
 
         System.out.println(" ** Playing game " + game_file + ", level " + level_file + " **");
@@ -61,7 +61,7 @@ public class LearningMachine {
     public static void runMultipleGames(String game_file, String[] level_files,
                                         String cmd[], String[] actionFiles, boolean visuals) throws IOException {
         VGDLFactory.GetInstance().init(); //This always first thing to do.
-        VGDLRegistry.GetInstance().init();
+        VGDLRegistry.resetInstance();
         CompetitionParameters.IS_LEARNING = true;
         //Create the player.
         LearningPlayer player = LearningMachine.createPlayer(cmd);
@@ -125,7 +125,7 @@ public class LearningMachine {
     public static void runGames(String game_file, String[] level_files, int level_times,
                                 LearningPlayer player, String[] actionFiles, boolean visual) throws IOException {
         VGDLFactory.GetInstance().init(); //This always first thing to do.
-        VGDLRegistry.GetInstance().init();
+        VGDLRegistry.resetInstance();
         CompetitionParameters.IS_LEARNING = true;
         boolean recordActions = false;
         if (actionFiles != null) {
@@ -39,7 +39,7 @@ public class LevelGenMachine
      */
     public static boolean generateOneLevel(String gameFile, String levelGenerator, String levelFile) {
         VGDLFactory.GetInstance().init(); // This always first thing to do.
-        VGDLRegistry.GetInstance().init();
+        VGDLRegistry.resetInstance();
 
         System.out.println(
                 " ** Generating a level for " + gameFile + ", using level generator " + levelGenerator + " **");
@@ -92,7 +92,7 @@ public class LevelGenMachine
      */
     public static void generateLevels(String gameFile, String levelGenerator, String[] levelFile) {
         VGDLFactory.GetInstance().init(); // This always first thing to do.
-        VGDLRegistry.GetInstance().init();
+        VGDLRegistry.resetInstance();
 
         // First, we create the game to be played..
         Game toPlay = new VGDLParser().parseGame(gameFile);
@@ -171,7 +171,7 @@ public class LevelGenMachine
     public static double runOneGeneratedLevel(String gameFile, boolean visuals, String agentName, String actionFile,
                                               String levelFile, int randomSeed, boolean isHuman) {
         VGDLFactory.GetInstance().init(); // This always first thing to do.
-        VGDLRegistry.GetInstance().init();
+        VGDLRegistry.resetInstance();
 
         System.out.println(" ** Playing game " + gameFile + ", using generate level file " + levelFile + " **");
 
@@ -239,7 +239,7 @@ public class LevelGenMachine
         String agentName = "tracks.singlePlayer.tools.human.Agent";
 
         VGDLFactory.GetInstance().init(); // This always first thing to do.
-        VGDLRegistry.GetInstance().init();
+        VGDLRegistry.resetInstance();
 
         boolean recordActions = false;
         if (actionFile != null) {
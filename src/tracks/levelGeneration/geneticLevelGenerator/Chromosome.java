@@ -4,6 +4,8 @@ import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Map.Entry;
+import java.util.TreeMap;
 
 import core.game.Event;
 import core.game.GameDescription.SpriteData;
@@ -239,6 +241,9 @@ public class Chromosome implements Comparable<Chromosome>{
 		}
 		
 		FixLevel();
+		
+		//the level changed, so its state observation must be built again
+		stateObs = null;
 	}
 	
 
@@ -381,6 +386,23 @@ public class Chromosome implements Comparable<Chromosome>{
 	}
 	
 
+	/**
+	 * get a string that identifies the current level: the level string 
+	 * followed by the sprites of each one of its characters
+	 * @return	equal strings for chromosomes with the same level
+	 */
+	public String getLevelKey(){
+		LevelMapping levelMapping = getLevelMapping();
+		String levelKey = getLevelString(levelMapping);
+		TreeMap<Character, ArrayList<String>> charMapping = new TreeMap<Character, ArrayList<String>>(levelMapping.getCharMapping());
+		for(Entry<Character, ArrayList<String>> entry:charMapping.entrySet()){
+			levelKey += "\n" + entry.getKey() + entry.getValue();
+		}
+		
+		return levelKey;
+	}
+	
+
 	/**
 	 * get the percentage of the level covered by objects excluding the borders
 	 * @return	percentage with respect to the size of the level
@@ -635,6 +657,43 @@ public class Chromosome implements Comparable<Chromosome>{
 		return fitness;
 	}
 
+	/**
+	 * Build the state observation of the level before calculating the fitness. 
+	 * Building it changes the game shared by all the chromosomes, so it must be 
+	 * done in one thread, while calculateFitness can run in parallel afterwards.
+	 */
+	public void prepareFitness(){
+		if(!calculated){
+			getStateObservation();
+		}
+	}
+	
+
+	/**
+	 * Check if the fitness of the chromosome is calculated
+	 * @return	true if calculateFitness was called (or the fitness copied)
+	 */
+	public boolean isCalculated(){
+		return calculated;
+	}
+	
+
+	/**
+	 * Take the fitness of another chromosome with the same level, 
+	 * instead of calculating it again
+	 * @param c	chromosome with the fitness calculated
+	 */
+	public void copyFitness(Chromosome c){
+		calculated = true;
+		fitness = new ArrayList<Double>(c.fitness);
+		constrainFitness = c.constrainFitness;
+		
+		this.automatedAgent = null;
+		this.naiveAgent = null;
+		this.stateObs = null;
+	}
+	
+
 	/**
 	 * Get the current chromosome fitness
 	 * @return	array contains all fitness values
@@ -4,9 +4,15 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import core.game.GameDescription;
 import core.generator.AbstractLevelGenerator;
+import core.logging.Logger;
+import core.termination.Termination;
 import tools.ElapsedCpuTimer;
 import tools.GameAnalyzer;
 import tools.LevelMapping;
@@ -29,6 +35,20 @@ public class LevelGenerator extends AbstractLevelGenerator{
 	 * number of infeasible chromosomes across generations
 	 */
 	private ArrayList<Integer> numOfInFeasible;
+	/**
+	 * fitness of the levels evaluated in this generation process, by level key
+	 * (identical levels produced by crossover or mutation are not evaluated again)
+	 */
+	private HashMap<String, Chromosome> fitnessCache;
+	/**
+	 * threads that evaluate the chromosomes
+	 */
+	private ExecutorService workers;
+	/**
+	 * CPU time (in ms) spent by the threads evaluating the chromosomes, 
+	 * that is not measured by the timer of the generation process
+	 */
+	private long evaluationTime;
 	
 	/**
 	 * Initializing the level generator
@@ -125,8 +145,8 @@ public class LevelGenerator extends AbstractLevelGenerator{
 		
 
 		//calculate fitness of the new population chromosomes 
+		calculateFitness(newPopulation);
 		for(int i=0;i<newPopulation.size();i++){
-			newPopulation.get(i).calculateFitness(SharedData.EVALUATION_TIME);
 			if(newPopulation.get(i).getConstrainFitness() < 1){
 				System.out.println("\tChromosome #" + (i+1) + " Constrain Fitness: " + newPopulation.get(i).getConstrainFitness());
 			}
@@ -158,6 +178,91 @@ public class LevelGenerator extends AbstractLevelGenerator{
 		return newPopulation;
 	}
 
+	/**
+	 * Calculate the fitness of the chromosomes, in parallel. Chromosomes whose 
+	 * level was evaluated before take the fitness of that evaluation.
+	 * @param chromosomes	array of chromosomes to evaluate
+	 */
+	private void calculateFitness(ArrayList<Chromosome> chromosomes){
+		if(workers == null){
+			workers = Executors.newFixedThreadPool(SharedData.NUM_THREADS, r -> {
+				Thread worker = new Thread(r, "LevelGenerator");
+				worker.setDaemon(true);
+				return worker;
+			});
+		}
+		
+		//the evaluations use the logger and counter terminations of this thread
+		final Logger logger = Logger.getInstance();
+		final boolean canEnd = Termination.canEnd();
+		
+		//the levels are built here, before the workers start evaluating them
+		ArrayList<Chromosome> evaluated = new ArrayList<Chromosome>();
+		ArrayList<String> keys = new ArrayList<String>();
+		for(Chromosome c:chromosomes){
+			String key = null;
+			if(!c.isCalculated()){
+				key = c.getLevelKey();
+				if(!fitnessCache.containsKey(key)){
+					fitnessCache.put(key, c);
+					c.prepareFitness();
+					evaluated.add(c);
+				}
+			}
+			keys.add(key);
+		}
+		
+		ArrayList<Future<Long>> evaluations = new ArrayList<Future<Long>>();
+		for(Chromosome c:evaluated){
+			evaluations.add(workers.submit(() -> {
+				Logger.setThreadInstance(logger);
+				Termination.setCanEnd(canEnd);
+				
+				ElapsedCpuTimer timer = new ElapsedCpuTimer();
+				c.calculateFitness(SharedData.EVALUATION_TIME);
+				return timer.elapsedMillis();
+			}));
+		}
+		
+		//wait for all the evaluations, even if this thread is interrupted
+		boolean interrupted = false;
+		for(Future<Long> evaluation:evaluations){
+			while(true){
+				try{
+					evaluationTime += evaluation.get();
+					break;
+				}
+				catch(InterruptedException e){
+					interrupted = true;
+				}
+				catch(ExecutionException e){
+					throw new RuntimeException(e.getCause());
+				}
+			}
+		}
+		if(interrupted){
+			Thread.currentThread().interrupt();
+		}
+		
+		//the rest of the chromosomes with the same levels take their fitness
+		for(int i=0; i<chromosomes.size(); i++){
+			Chromosome c = chromosomes.get(i);
+			if(!c.isCalculated()){
+				c.copyFitness(fitnessCache.get(keys.get(i)));
+			}
+		}
+	}
+	
+	/**
+	 * Get the time remaining to generate the level, counting the time spent 
+	 * evaluating the chromosomes in parallel
+	 * @param elapsedTimer	the amount of time allowed for generation
+	 * @return				time remaining (in ms)
+	 */
+	private long remainingTimeMillis(ElapsedCpuTimer elapsedTimer){
+		return elapsedTimer.remainingTimeMillis() - evaluationTime;
+	}
+
 	/**
 	 * Roullete wheel selection for the infeasible population
 	 * @param population	array of chromosomes surviving in this population
@@ -235,6 +340,8 @@ public class LevelGenerator extends AbstractLevelGenerator{
 		bestFitness = new ArrayList<Double>();
 		numOfFeasible = new ArrayList<Integer>();
 		numOfInFeasible = new ArrayList<Integer>();
+		fitnessCache = new HashMap<String, Chromosome>();
+		evaluationTime = 0;
 		
 		SharedData.gameDescription = game;
 		
@@ -253,6 +360,7 @@ public class LevelGenerator extends AbstractLevelGenerator{
 		System.out.println("Generation #1: ");
 		ArrayList<Chromosome> fChromosomes = new ArrayList<Chromosome>();
 		ArrayList<Chromosome> iChromosomes = new ArrayList<Chromosome>();
+		ArrayList<Chromosome> population = new ArrayList<Chromosome>();
 		for(int i =0; i < SharedData.POPULATION_SIZE; i++){
 
 			//initialize the population using either randomly or using contructive level generator
@@ -263,10 +371,14 @@ public class LevelGenerator extends AbstractLevelGenerator{
 			else{
 				chromosome.InitializeRandom();
 			}
+			population.add(chromosome);
+		}
 
-			//calculate the fitness for all the chromosomes and add them to the correct population
-			//either the feasible or the infeasible one
-			chromosome.calculateFitness(SharedData.EVALUATION_TIME);
+		//calculate the fitness for all the chromosomes and add them to the correct population
+		//either the feasible or the infeasible one
+		calculateFitness(population);
+		for(int i =0; i < SharedData.POPULATION_SIZE; i++){
+			Chromosome chromosome = population.get(i);
 			if(chromosome.getConstrainFitness() < 1){
 				iChromosomes.add(chromosome);
 				System.out.println("\tChromosome #" + (i+1) + " Constrain Fitness: " + chromosome.getConstrainFitness());
@@ -284,10 +396,11 @@ public class LevelGenerator extends AbstractLevelGenerator{
 		double totalTime = 0;
 		int numberOfIterations = 0;
 
-		System.out.println(elapsedTimer.remainingTimeMillis() + " " + avgTime + " " + worstTime);
-		while(elapsedTimer.remainingTimeMillis() > 2 * avgTime &&
-				elapsedTimer.remainingTimeMillis() > worstTime){
+		System.out.println(remainingTimeMillis(elapsedTimer) + " " + avgTime + " " + worstTime);
+		while(remainingTimeMillis(elapsedTimer) > 2 * avgTime &&
+				remainingTimeMillis(elapsedTimer) > worstTime){
 			ElapsedCpuTimer timer = new ElapsedCpuTimer();
+			long startEvaluationTime = evaluationTime;
 			
 			System.out.println("Generation #" + (numberOfIterations + 2) + ": ");
 			
@@ -306,11 +419,14 @@ public class LevelGenerator extends AbstractLevelGenerator{
 			}
 			
 			numberOfIterations += 1;
-			totalTime += timer.elapsedMillis();
+			totalTime += timer.elapsedMillis() + evaluationTime - startEvaluationTime;
 			avgTime = totalTime / numberOfIterations;
 		}
 		
 
+		workers.shutdown();
+		workers = null;
+		
 		//return the best infeasible chromosome
 		if(fChromosomes.isEmpty()){
 			for(int i=0;i<iChromosomes.size();i++){
@@ -97,6 +97,10 @@ public class SharedData {
 	 * starting the GA with seeds from the constructive algorithm
 	 */
 	public static final boolean CONSTRUCTIVE_INITIALIZATION = true;
+	/**
+	 * number of chromosomes evaluated in parallel
+	 */
+	public static final int NUM_THREADS = Runtime.getRuntime().availableProcessors();
 	
 	/**
 	 * The name of a the best agent with some human error
@@ -76,7 +76,7 @@ public class RuleGenMachine
 	public static double[] runOneGame(String original_game, String generated_game, String level_file, boolean visuals, String agentNames,
 									  String actionFile, int randomSeed, int playerID) {
 		VGDLFactory.GetInstance().init(); // This always first thing to do.
-		VGDLRegistry.GetInstance().init();
+		VGDLRegistry.resetInstance();
 
 		if (CompetitionParameters.OS_WIN)
 		{
@@ -182,7 +182,7 @@ public class RuleGenMachine
 	 */
 	public static boolean generateRules(String gameFile, String levelFile, String ruleGenerator, String modifiedFile, int randomSeed) {
 		VGDLFactory.GetInstance().init();
-		VGDLRegistry.GetInstance().init();
+		VGDLRegistry.resetInstance();
 
 		// First, we create the game to be played..
 		Game toPlay = new VGDLParser().parseGame(gameFile);
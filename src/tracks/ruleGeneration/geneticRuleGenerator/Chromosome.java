@@ -57,6 +57,10 @@ public class Chromosome implements Comparable<Chromosome>{
 	private int FEASIBILITY_STEP_LIMIT = 40;
 
 	private int doNothingLength;
+	/**
+	 * the game built with the ruleset, to be played by the agents (see prepareFitness)
+	 */
+	private StateObservation stateObs;
 	StateObservation doNothingState;
 	StateObservation bestState;
 	ArrayList<Types.ACTIONS> bestSol;
@@ -660,22 +664,40 @@ public class Chromosome implements Comparable<Chromosome>{
 			ruleset[1] = tempTerm;
 		}
 	}
+	/**
+	 * get a string that identifies the ruleset: its interactions and terminations, 
+	 * sorted and without repetitions
+	 * @return	equal strings for chromosomes with equivalent rulesets
+	 */
+	public String getRulesetKey() {
+		return new TreeSet<String>(Arrays.asList(ruleset[0])) + "\n" + new TreeSet<String>(Arrays.asList(ruleset[1]));
+	}
+	/**
+	 * builds the game with the ruleset before calculating the fitness. Building it 
+	 * changes the game of the SL description, so it must be done in one thread, 
+	 * while calculateFitness can run in parallel afterwards.
+	 */
+	public void prepareFitness() {
+		HashMap<String, ArrayList<String>> spriteSetStruct = SharedData.constGen.getSpriteSetStructure();
+		stateObs = sl.testRules(ruleset[0], ruleset[1], spriteSetStruct);
+		errorCount = sl.getErrors().size();
+	}
 	/**
 	 * first checks to see if there are no build errors, if there are, this is infeasible. 
 	 * Otherwise, it will check to see if a do nothing agent dies within the first 40 steps of playing. 
 	 * if it does, this is infeasible.
+	 * @param agents	the agents that play the game
 	 * @return
 	 */
-	private StateObservation feasibilityTest() {
-		HashMap<String, ArrayList<String>> spriteSetStruct = SharedData.constGen.getSpriteSetStructure();
-		StateObservation state = sl.testRules(ruleset[0], ruleset[1], spriteSetStruct);		
-		errorCount = sl.getErrors().size();
+	private StateObservation feasibilityTest(EvaluationAgents agents) {
+		StateObservation state = stateObs;
+		stateObs = null;
 		constrainFitness = 0;
 		constrainFitness += (0.5) * 1.0 / (errorCount + 1.0);	
 		if(constrainFitness >= 0.5) {
 			doNothingLength = Integer.MAX_VALUE;
 			for(int i = 0; i < SharedData.REPETITION_AMOUNT; i++) {
-				int temp = this.getAgentResult(state.copy(), FEASIBILITY_STEP_LIMIT, SharedData.doNothingAgent);
+				int temp = this.getAgentResult(state.copy(), FEASIBILITY_STEP_LIMIT, agents.doNothingAgent);
 				if(temp < doNothingLength){
 					doNothingLength = temp;
 				}
@@ -694,12 +716,22 @@ public class Chromosome implements Comparable<Chromosome>{
 	 * @param time	how much time to evaluate the chromosome
 	 */
 	public void calculateFitness(long time) {
+		prepareFitness();
+		calculateFitness(time, new EvaluationAgents());
+	}
+	/**
+	 * calculates the fitness of the game built by prepareFitness, by comparing 
+	 * the scores of a naiveAI and a smart AI
+	 * @param time		how much time to evaluate the chromosome
+	 * @param agents	the agents that play the game
+	 */
+	public void calculateFitness(long time, EvaluationAgents agents) {
 		
 		// reset bad frames
 		this.badFrames = 0;
 		// unique events that occurred in all the game simulations
 		Set<String> events = new HashSet<String>();
-		StateObservation stateObs = feasibilityTest();
+		StateObservation stateObs = feasibilityTest(agents);
 		if(constrainFitness < 0.7) {
 			// failed feasibility
 			this.fitness.set(0, constrainFitness);
@@ -720,8 +752,8 @@ public class Chromosome implements Comparable<Chromosome>{
 			int bestSolutionSize = 0;
 			for(int i=0; i<SharedData.REPETITION_AMOUNT; i++){
 				StateObservation tempState = stateObs.copy();
-				cleanOpenloopAgents();
-				int temp = getAgentResult(tempState, SharedData.EVALUATION_STEP_COUNT, SharedData.automatedAgent);
+				cleanOpenloopAgents(agents.automatedAgent);
+				int temp = getAgentResult(tempState, SharedData.EVALUATION_STEP_COUNT, agents.automatedAgent);
 				// add temp to framesCount
 				frameCount += temp;
 				
@@ -756,7 +788,7 @@ public class Chromosome implements Comparable<Chromosome>{
 			StateObservation randomState = null;
 			for(int i=0; i<SharedData.REPETITION_AMOUNT; i++){
 				StateObservation tempState = stateObs.copy();
-				int temp = getAgentResult(tempState, bestSolutionSize, SharedData.randomAgent);
+				int temp = getAgentResult(tempState, bestSolutionSize, agents.randomAgent);
 				// add temp to framesCount
 				frameCount += temp;
 				randomState = tempState;
@@ -788,7 +820,7 @@ public class Chromosome implements Comparable<Chromosome>{
 			//playing the game using the naive agent
 			for(int i=0; i<SharedData.REPETITION_AMOUNT; i++){
 				StateObservation tempState = stateObs.copy();
-				int temp = getAgentResult(tempState, bestSolutionSize, SharedData.naiveAgent);
+				int temp = getAgentResult(tempState, bestSolutionSize, agents.naiveAgent);
 				// add temp to framesCount
 				frameCount += temp;
 				naiveState = tempState;
@@ -988,10 +1020,10 @@ public class Chromosome implements Comparable<Chromosome>{
 	}
 
 	
-	private void cleanOpenloopAgents() {
-		((tracks.singlePlayer.advanced.olets.Agent)SharedData.automatedAgent).mctsPlayer = 
+	private void cleanOpenloopAgents(AbstractPlayer automatedAgent) {
+		((tracks.singlePlayer.advanced.olets.Agent)automatedAgent).mctsPlayer = 
 			new tracks.singlePlayer.advanced.olets.SingleMCTSPlayer(new Random(), 
-				(tracks.singlePlayer.advanced.olets.Agent) SharedData.automatedAgent);
+				(tracks.singlePlayer.advanced.olets.Agent) automatedAgent);
 	}
 	
 	/***
@@ -1076,6 +1108,18 @@ public class Chromosome implements Comparable<Chromosome>{
 
 		return 0;
 	}
+	/**
+	 * takes the fitness of another chromosome with an equivalent ruleset, 
+	 * instead of calculating it again
+	 * @param c	chromosome with the fitness calculated
+	 */
+	public void copyFitness(Chromosome c) {
+		this.fitness = new ArrayList<Double>(c.fitness);
+		this.constrainFitness = c.constrainFitness;
+		this.errorCount = c.errorCount;
+		this.badFrames = c.badFrames;
+		this.stateObs = null;
+	}
 	/**
 	 * Returns the fitness of the chromosome
 	 * @return fitness the fitness of the chromosome
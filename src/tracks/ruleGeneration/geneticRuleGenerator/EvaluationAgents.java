@@ -0,0 +1,70 @@
+package tracks.ruleGeneration.geneticRuleGenerator;
+
+import java.lang.reflect.Constructor;
+
+import core.game.StateObservation;
+import core.player.AbstractPlayer;
+import tools.ElapsedCpuTimer;
+
+/**
+ * The agents that play the games built with the rulesets to evaluate them. Agents keep
+ * information between their moves, so chromosomes evaluated at the same time need
+ * their own agents.
+ */
+public class EvaluationAgents {
+	/**
+	 * the best automated agent
+	 */
+	public AbstractPlayer automatedAgent;
+	/**
+	 * the naive automated agent
+	 */
+	public AbstractPlayer naiveAgent;
+	/**
+	 * the do nothing automated agent
+	 */
+	public AbstractPlayer doNothingAgent;
+	/**
+	 * the random agent
+	 */
+	public AbstractPlayer randomAgent;
+
+	/**
+	 * Use the agents of the generator (see SharedData)
+	 */
+	public EvaluationAgents() {
+		this.automatedAgent = SharedData.automatedAgent;
+		this.naiveAgent = SharedData.naiveAgent;
+		this.doNothingAgent = SharedData.doNothingAgent;
+		this.randomAgent = SharedData.randomAgent;
+	}
+
+	/**
+	 * Create new agents for a game
+	 * @param stateObs	a state of the game (each agent gets a copy)
+	 */
+	public EvaluationAgents(StateObservation stateObs) {
+		this.automatedAgent = createAgent(SharedData.BEST_AGENT_NAME, stateObs.copy());
+		this.naiveAgent = createAgent(SharedData.NAIVE_AGENT_NAME, stateObs.copy());
+		this.doNothingAgent = createAgent(SharedData.DO_NOTHING_AGENT_NAME, stateObs.copy());
+		this.randomAgent = createAgent(SharedData.RANDOM_AGENT_NAME, stateObs.copy());
+	}
+
+	/**
+	 * Create an agent
+	 * @param name		the class name of the agent
+	 * @param stateObs	the state given to the agent constructor
+	 * @return			the agent, or null if it can't be created
+	 */
+	private static AbstractPlayer createAgent(String name, StateObservation stateObs) {
+		try{
+			Class<?> agentClass = Class.forName(name);
+			Constructor<?> agentConst = agentClass.getConstructor(StateObservation.class, ElapsedCpuTimer.class);
+			return (AbstractPlayer)agentConst.newInstance(stateObs, null);
+		}
+		catch(Exception e){
+			e.printStackTrace();
+		}
+		return null;
+	}
+}
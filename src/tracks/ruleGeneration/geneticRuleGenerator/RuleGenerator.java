@@ -3,12 +3,21 @@ package tracks.ruleGeneration.geneticRuleGenerator;
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import core.game.SLDescription;
 import core.game.StateObservation;
 import core.generator.AbstractRuleGenerator;
+import core.logging.Logger;
 import core.player.AbstractPlayer;
+import core.termination.Termination;
 import tools.ElapsedCpuTimer;
 import tools.LevelAnalyzer;
 
@@ -19,6 +28,14 @@ public class RuleGenerator extends AbstractRuleGenerator{
 	private ArrayList<Integer> numOfFeasible;
 	/** number of infeasible chromosomes across generations **/
 	private ArrayList<Integer> numOfInFeasible;
+	/** fitness of the rulesets evaluated, by ruleset key (equivalent rulesets are not evaluated again) **/
+	private HashMap<String, Chromosome> fitnessCache;
+	/** threads that evaluate the chromosomes **/
+	private ExecutorService workers;
+	/** agents of the threads that evaluate the chromosomes, one set for each thread **/
+	private BlockingQueue<EvaluationAgents> workerAgents;
+	/** CPU time (in ms) spent by the threads evaluating the chromosomes, not measured by the timer of generateRules **/
+	private long evaluationTime;
 	
 	/**
 	 * initialize the agents used during evaluating the chromosome
@@ -87,6 +104,11 @@ public class RuleGenerator extends AbstractRuleGenerator{
 		}
 		SharedData.usefulSprites.add("EOS");
 		constructAgent(sl);
+		workerAgents = new ArrayBlockingQueue<EvaluationAgents>(SharedData.NUM_THREADS);
+		for(int i = 0; i < SharedData.NUM_THREADS; i++) {
+			workerAgents.add(new EvaluationAgents(sl.testRules(new String[]{}, new String[]{})));
+		}
+		fitnessCache = new HashMap<String, Chromosome>();
 		SharedData.constGen = new tracks.ruleGeneration.constructiveRuleGenerator.RuleGenerator(sl, time);
 		SharedData.constGen.generateRules(sl, time);
 	}
@@ -100,11 +122,13 @@ public class RuleGenerator extends AbstractRuleGenerator{
             	 	for(int i = 0; i < amount; i++) {
         	 		Chromosome c = new Chromosome(ruleGen.generateRules(sl, null), sl);
         	 		c.cleanseChromosome();
-        	 		c.calculateFitness(SharedData.EVALUATION_TIME);
+        	 		chromosomes.add(c);
+        	 	}
+            	 	calculateFitness(chromosomes);
+            	 	for(Chromosome c : chromosomes) {
         	 		for(int j = 0; j < mutations; j++) {
         				c.mutate();
         			}
-        	 		chromosomes.add(c);
         	 	}
 	    	}
 	    	catch(Exception e){
@@ -199,8 +223,8 @@ public class RuleGenerator extends AbstractRuleGenerator{
 
 
 		//calculate fitness of the new population chromosomes
+		calculateFitness(newPopulation);
 		for(int i=0;i<newPopulation.size();i++){
-		    	newPopulation.get(i).calculateFitness(SharedData.EVALUATION_TIME);
 		    	if(newPopulation.get(i).getConstrainFitness() < 1){
 				System.out.println("\tChromosome #" + (i+1) + " Constrain Fitness: " + newPopulation.get(i).getConstrainFitness());
         		}
@@ -232,6 +256,95 @@ public class RuleGenerator extends AbstractRuleGenerator{
 		return newPopulation;
 	}
 
+	/**
+	 * Calculates the fitness of the chromosomes, in parallel. The games of the rulesets
+	 * are built in this thread, and played by the workers. Chromosomes with a ruleset
+	 * equivalent to one evaluated before take the fitness of that evaluation.
+	 * @param chromosomes	the chromosomes to evaluate
+	 */
+	private void calculateFitness(ArrayList<Chromosome> chromosomes) {
+		if(workers == null) {
+			workers = Executors.newFixedThreadPool(SharedData.NUM_THREADS, r -> {
+				Thread worker = new Thread(r, "RuleGenerator");
+				worker.setDaemon(true);
+				return worker;
+			});
+		}
+
+		// the evaluations use the logger and counter terminations of this thread
+		final Logger logger = Logger.getInstance();
+		final boolean canEnd = Termination.canEnd();
+
+		// build all the games before the workers start playing them
+		ArrayList<Chromosome> evaluated = new ArrayList<Chromosome>();
+		ArrayList<String> keys = new ArrayList<String>();
+		HashMap<String, Chromosome> pending = new HashMap<String, Chromosome>();
+		for(Chromosome c : chromosomes) {
+			String key = c.getRulesetKey();
+			keys.add(key);
+			if(!fitnessCache.containsKey(key) && !pending.containsKey(key)) {
+				pending.put(key, c);
+				c.prepareFitness();
+				evaluated.add(c);
+			}
+		}
+
+		ArrayList<Future<Long>> evaluations = new ArrayList<Future<Long>>();
+		for(Chromosome c : evaluated) {
+			evaluations.add(workers.submit(() -> {
+				Logger.setThreadInstance(logger);
+				Termination.setCanEnd(canEnd);
+
+				EvaluationAgents agents = workerAgents.take();
+				try {
+					ElapsedCpuTimer timer = new ElapsedCpuTimer();
+					c.calculateFitness(SharedData.EVALUATION_TIME, agents);
+					return timer.elapsedMillis();
+				} finally {
+					workerAgents.add(agents);
+				}
+			}));
+		}
+
+		// wait for all the evaluations, even if this thread is interrupted
+		boolean interrupted = false;
+		for(Future<Long> evaluation : evaluations) {
+			while(true) {
+				try {
+					evaluationTime += evaluation.get();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					throw new RuntimeException(e.getCause());
+				}
+			}
+		}
+		if(interrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		// cache a copy of the results (the chromosomes may be mutated later)
+		for(Chromosome c : evaluated) {
+			Chromosome result = c.clone();
+			result.copyFitness(c);
+			fitnessCache.put(c.getRulesetKey(), result);
+		}
+		for(int i = 0; i < chromosomes.size(); i++) {
+			chromosomes.get(i).copyFitness(fitnessCache.get(keys.get(i)));
+		}
+	}
+
+	/**
+	 * Gets the time remaining to generate the rules, counting the time spent
+	 * evaluating the chromosomes in parallel
+	 * @param time	the time allowed for the generator to loop
+	 * @return		time remaining (in ms)
+	 */
+	private long remainingTimeMillis(ElapsedCpuTimer time) {
+		return time.remainingTimeMillis() - evaluationTime;
+	}
+
 	/**
 	 * Performs rank selection on the given population
 	 * @param population 	the population to be performed upon
@@ -289,8 +402,9 @@ public class RuleGenerator extends AbstractRuleGenerator{
 		int numberOfIterations = 0;
 		
 		// START EVO LOOP
-		while(time.remainingTimeMillis() > 4 * avgTime && time.remainingTimeMillis() > worstTime){
+		while(remainingTimeMillis(time) > 4 * avgTime && remainingTimeMillis(time) > worstTime){
 			ElapsedCpuTimer timer = new ElapsedCpuTimer();
+			long startEvaluationTime = evaluationTime;
 			System.out.println("Generation #" + (numberOfIterations + 1) + ": ");
 			fChromosomes.clear();
 			iChromosomes.clear();
@@ -305,7 +419,7 @@ public class RuleGenerator extends AbstractRuleGenerator{
 			//get the new population and split it to a the feasible and infeasible populations
 			ArrayList<Chromosome> chromosomes = getNextPopulation(fChromosomes, iChromosomes);
 			numberOfIterations += 1;
-			totalTime += timer.elapsedMillis();
+			totalTime += timer.elapsedMillis() + evaluationTime - startEvaluationTime;
 			avgTime = totalTime / numberOfIterations;
 			Collections.sort(chromosomes);
 			System.out.println("Best Chromosome Fitness: " + chromosomes.get(0).getFitness());
@@ -314,9 +428,9 @@ public class RuleGenerator extends AbstractRuleGenerator{
 
 		//return the best infeasible chromosome
 		if(fChromosomes.isEmpty()){
-			for(int i=0;i<iChromosomes.size();i++){
-				iChromosomes.get(i).calculateFitness(SharedData.EVALUATION_TIME);
-			}
+			calculateFitness(iChromosomes);
+			workers.shutdown();
+			workers = null;
 
 			Collections.sort(iChromosomes);
 			System.out.println("Best Fitness: " + iChromosomes.get(0).getConstrainFitness());
@@ -324,9 +438,9 @@ public class RuleGenerator extends AbstractRuleGenerator{
 		}
 
 		//return the best feasible chromosome otherwise and print some statistics
-		for(int i=0;i<fChromosomes.size();i++){
-			fChromosomes.get(i).calculateFitness(SharedData.EVALUATION_TIME);
-		}
+		calculateFitness(fChromosomes);
+		workers.shutdown();
+		workers = null;
 		Collections.sort(fChromosomes);
 		System.out.println("Best Chromosome Fitness: " + fChromosomes.get(0).getFitness());
 		System.out.println(bestFitness);
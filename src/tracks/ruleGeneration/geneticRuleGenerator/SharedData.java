@@ -25,6 +25,10 @@ public class SharedData {
 	 * the amount of time to evaluate a single level
 	 */
 	public static final long EVALUATION_TIME = 10000;
+	/**
+	 * number of chromosomes evaluated in parallel
+	 */
+	public static final int NUM_THREADS = Runtime.getRuntime().availableProcessors();
 	
 	/**
 	 * number of the best chromosomes that are transfered from one generation to another
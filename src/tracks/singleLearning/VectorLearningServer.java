@@ -0,0 +1,249 @@
+package tracks.singleLearning;
+
+import core.competition.CompetitionParameters;
+import core.logging.Logger;
+import core.vgdl.VGDLFactory;
+import core.vgdl.VGDLRegistry;
+import ontology.Types;
+import tracks.singleLearning.utils.GameEnvironment;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Learning server that hosts several instances (environments) of a game in the same process,
+ * so a learning client can train on many games at the same time without starting a server
+ * for each one. All environments are stepped in parallel, and their observations and actions
+ * are exchanged in a single message per step.
+ *
+ * The client connects by socket and exchanges length-prefixed binary frames (an int with the
+ * length, followed by the payload), as in the binary protocol of SocketComm:
+ *  - Server: VECTOR_SCHEMA (UTF) and the number of environments (int).
+ *  - Server: the first observation of every environment.
+ *  - Client: the number of environments (int) and an action for each one (UTF); or -1 to finish.
+ *  - Server: the observation of every environment after applying the actions.
+ * Each observation is written with SerializableStateObservation.writeBinary(), as changes from
+ * the previous observation of the same environment. Its phase is INIT for the first observation
+ * of an episode, ACT during the game and END when the game is over. The action sent after an END
+ * observation is ignored, and a new episode of the same level starts. Observations don't
+ * include images.
+ */
+public class VectorLearningServer {
+
+    /**
+     * Version of the protocol of this server.
+     */
+    public static final String VECTOR_SCHEMA = "VECTOR1";
+
+    /**
+     * Environments hosted.
+     */
+    private GameEnvironment[] envs;
+
+    /**
+     * Pool of threads that step the environments.
+     */
+    private ExecutorService pool;
+
+    /**
+     * Creates the environments. Environment i plays the level levelFiles[i % levelFiles.length].
+     * @param gameFile game description file.
+     * @param levelFiles files with the levels to play.
+     * @param numEnvs number of environments.
+     * @param numThreads number of threads to step the environments.
+     * @param seed seed for the random generators of the environments.
+     */
+    public VectorLearningServer(String gameFile, String[] levelFiles, int numEnvs, int numThreads, long seed) {
+        VGDLFactory.GetInstance().init(); //This always first thing to do.
+        VGDLRegistry.resetInstance();
+        CompetitionParameters.IS_LEARNING = true;
+
+        //All environments play the same game, so they share the registry it is parsed with.
+        envs = new GameEnvironment[numEnvs];
+        for (int i = 0; i < numEnvs; i++)
+            envs[i] = new GameEnvironment(gameFile, levelFiles[i % levelFiles.length], seed + i);
+
+        pool = Executors.newFixedThreadPool(Math.max(1, numThreads), runnable -> {
+            Thread thread = new Thread(() -> {
+                Logger.createThreadInstance();
+                runnable.run();
+            }, "VectorLearningServer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Applies an action in each environment, and writes their new observations.
+     * @param actions action for each environment (null to only write the observations).
+     */
+    public void step(final Types.ACTIONS[] actions) throws IOException {
+        List<Callable<Void>> tasks = new ArrayList<>(envs.length);
+        for (int i = 0; i < envs.length; i++) {
+            final GameEnvironment env = envs[i];
+            final Types.ACTIONS action = actions == null ? null : actions[i];
+            tasks.add(() -> {
+                if (action != null)
+                    env.step(action);
+                env.writeObservation();
+                return null;
+            });
+        }
+
+        try {
+            for (Future<Void> result : pool.invokeAll(tasks))
+                result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Plays with a client connected by socket, until it finishes or the connection is closed.
+     * @param port port to listen to.
+     */
+    public void serve(int port) throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(port);
+             Socket socket = serverSocket.accept()) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            ByteArrayOutputStream frameBytes = new ByteArrayOutputStream(1024);
+            DataOutputStream frame = new DataOutputStream(frameBytes);
+
+            frame.writeUTF(VECTOR_SCHEMA);
+            frame.writeInt(envs.length);
+            sendFrame(out, frameBytes);
+
+            Types.ACTIONS[] actions = null;
+            byte[] frameIn = new byte[256];
+            while (true) {
+                step(actions);
+                frameBytes.reset();
+                frame.writeInt(envs.length);
+                for (GameEnvironment env : envs)
+                    env.getObservationBytes().writeTo(frame);
+                sendFrame(out, frameBytes);
+
+                int length = in.readInt();
+                if (length > frameIn.length)
+                    frameIn = new byte[Math.max(length, frameIn.length * 2)];
+                in.readFully(frameIn, 0, length);
+                DataInputStream request = new DataInputStream(new ByteArrayInputStream(frameIn, 0, length));
+                int n = request.readInt();
+                if (n < 0)
+                    break; //Finished by the client.
+                if (n != envs.length)
+                    throw new IOException("Expected " + envs.length + " actions, received " + n);
+
+                actions = new Types.ACTIONS[n];
+                for (int i = 0; i < n; i++)
+                    actions[i] = Types.ACTIONS.fromString(request.readUTF());
+            }
+        } finally {
+            printResults();
+        }
+    }
+
+    /**
+     * Sends a frame.
+     * @param out output of the socket.
+     * @param frameBytes payload of the frame.
+     */
+    private static void sendFrame(DataOutputStream out, ByteArrayOutputStream frameBytes) throws IOException {
+        out.writeInt(frameBytes.size());
+        frameBytes.writeTo(out);
+        out.flush();
+    }
+
+    /**
+     * Prints the number of episodes played and their average score.
+     */
+    private void printResults() {
+        int episodes = 0;
+        double totalScore = 0;
+        for (GameEnvironment env : envs) {
+            episodes += env.getEpisodes();
+            totalScore += env.getTotalScore();
+        }
+        System.out.println("[LOG] " + envs.length + " environments, " + episodes + " episodes finished" +
+                (episodes > 0 ? ", average score " + (totalScore / episodes) : ""));
+    }
+
+    /**
+     * Stops the threads of this server.
+     */
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    public static void main(String[] args) throws Exception {
+        /** Init params */
+        String gameFile = "examples/gridphysics/aliens.txt";
+        String[] levelFiles = null;
+        int numEnvs = 8;
+        int numThreads = Runtime.getRuntime().availableProcessors();
+        int port = CompetitionParameters.SOCKET_PORT;
+        long seed = System.currentTimeMillis();
+        /** Get arguments */
+        Map<String, List<String>> params = new HashMap<>();
+        List<String> options = null;
+        for (int i = 0; i < args.length; i++) {
+            final String a = args[i];
+            if (a.charAt(0) == '-') {
+                if (a.length() < 2) {
+                    System.err.println("Error at argument " + a);
+                    return;
+                }
+                options = new ArrayList<>();
+                params.put(a.substring(1), options);
+            } else if (options != null) {
+                options.add(a);
+            }
+            else {
+                System.err.println("Illegal parameter usage");
+                return;
+            }
+        }
+        /** Update params */
+        if (params.containsKey("gameFile")) {
+            gameFile = params.get("gameFile").get(0);
+        }
+        if (params.containsKey("levelFiles")) {
+            levelFiles = params.get("levelFiles").toArray(new String[0]);
+        }
+        if (params.containsKey("envs")) {
+            numEnvs = Integer.parseInt(params.get("envs").get(0));
+        }
+        if (params.containsKey("threads")) {
+            numThreads = Integer.parseInt(params.get("threads").get(0));
+        }
+        if (params.containsKey("port")) {
+            port = Integer.parseInt(params.get("port").get(0));
+        }
+        if (params.containsKey("seed")) {
+            seed = Long.parseLong(params.get("seed").get(0));
+        }
+        if (levelFiles == null || levelFiles.length == 0) {
+            levelFiles = new String[]{gameFile.replace(".txt", "_lvl0.txt")};
+        }
+
+        VectorLearningServer server = new VectorLearningServer(gameFile, levelFiles, numEnvs, numThreads, seed);
+        System.out.println("[LOG] Serving " + numEnvs + " environments of " + gameFile + " at port " + port);
+        server.serve(port);
+        server.shutdown();
+    }
+}
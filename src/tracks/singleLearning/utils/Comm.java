@@ -29,6 +29,18 @@ public abstract class Comm extends Thread {
      */
     protected String TOKEN_SEP = "#";
 
+    /**
+     * Version of the binary protocol. It is offered to the client in the start message,
+     * and the client accepts it by adding it to its reply (see SocketComm).
+     */
+    public static final String BINARY_SCHEMA = "BINARY2";
+
+    /**
+     * Kinds of binary frames: a text message, or a serialized state observation.
+     */
+    public static final byte FRAME_TEXT = 0;
+    public static final byte FRAME_SSO = 1;
+
     /**
      * Message ID
      */
@@ -66,7 +78,7 @@ public abstract class Comm extends Thread {
 
             SerializableStateObservation sso = new SerializableStateObservation(so);
 
-            commSend(sso.serialize(null));
+            commSend(sso);
 
             String response = commRecv();
 
@@ -107,7 +119,7 @@ public abstract class Comm extends Thread {
             if(!CompetitionParameters.USE_SOCKETS)
                 commRecv();
 
-            commSend("START");
+            commSend(startMessage());
             String response;
 
             response = commRecv();
@@ -152,6 +164,23 @@ public abstract class Comm extends Thread {
         return false;
     }
 
+    /**
+     * Gets the message that starts the communication with the client.
+     * @return the start message.
+     */
+    protected String startMessage() {
+        return "START";
+    }
+
+    /**
+     * Sends a state observation to the client, serialized as JSON.
+     *
+     * @param sso observation to send.
+     */
+    public void commSend(SerializableStateObservation sso) throws IOException {
+        commSend(sso.serialize(null));
+    }
+
     /**
      * Creates the buffers for communication.
      */
@@ -0,0 +1,186 @@
+package tracks.singleLearning.utils;
+
+import core.competition.CompetitionParameters;
+import core.game.Game;
+import core.game.SerializableStateObservation;
+import core.game.StateObservation;
+import core.game.StateObservationMulti;
+import core.player.Player;
+import core.vgdl.VGDLParser;
+import ontology.Types;
+import tools.ElapsedCpuTimer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * One of the game instances hosted by a vectorized learning server (see VectorLearningServer).
+ * The game is played one cycle at a time, with the actions received from the client, and
+ * a new episode of the same level starts after the game is over.
+ */
+public class GameEnvironment {
+
+    /**
+     * Game played, and level it is played in.
+     */
+    private Game game;
+    private String levelFile;
+
+    /**
+     * Random generator for the seeds of the episodes.
+     */
+    private Random random;
+
+    /**
+     * Player of the game, that applies the actions received.
+     */
+    private EnvironmentPlayer player;
+
+    /**
+     * Indicates if the game is over, so a new episode starts in the next step.
+     */
+    private boolean gameOver;
+
+    /**
+     * Number of episodes finished, and sum of their scores.
+     */
+    private int episodes;
+    private double totalScore;
+
+    /**
+     * Last observation sent, and number of observations sent since the last keyframe.
+     */
+    private SerializableStateObservation lastSso;
+    private int sinceKeyframe;
+
+    /**
+     * Buffer where the last observation is written.
+     */
+    private ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+    private DataOutputStream out = new DataOutputStream(bytes);
+
+    /**
+     * Creates an environment and starts its first episode.
+     * @param gameFile game description file.
+     * @param levelFile file with the level to be played.
+     * @param seed seed for the random generator of the episodes.
+     */
+    public GameEnvironment(String gameFile, String levelFile, long seed) {
+        this.game = new VGDLParser().parseGame(gameFile);
+        this.levelFile = levelFile;
+        this.random = new Random(seed);
+        reset();
+    }
+
+    /**
+     * Starts a new episode of the level.
+     */
+    public void reset() {
+        int randomSeed = random.nextInt();
+        game.reset();
+        game.buildLevel(levelFile, randomSeed);
+        player = new EnvironmentPlayer();
+        player.setup(null, randomSeed, false);
+        game.startGame(new Player[]{player}, randomSeed);
+        gameOver = false;
+    }
+
+    /**
+     * Plays one cycle of the game with an action. If the game was over, a new episode
+     * is started instead, and the action is ignored.
+     * @param action action of the avatar.
+     */
+    public void step(Types.ACTIONS action) {
+        if (gameOver) {
+            reset();
+            return;
+        }
+        player.nextAction = action;
+        gameOver = game.playCycle();
+        if (gameOver) {
+            episodes++;
+            totalScore += game.handleResult()[0];
+        }
+    }
+
+    /**
+     * Writes the observation of the current state of the game, in the binary format of the
+     * learning protocol (see SerializableStateObservation.writeBinary()). Its phase is INIT
+     * at the start of an episode, END when the game is over, and ACT otherwise.
+     */
+    public void writeObservation() throws IOException {
+        StateObservation so = game.getObservation();
+        if (gameOver)
+            so.currentGameState = Types.GAMESTATES.END_STATE;
+        else if (game.getGameTick() < 0)
+            so.currentGameState = Types.GAMESTATES.INIT_STATE;
+        else
+            so.currentGameState = Types.GAMESTATES.ACT_STATE;
+        SerializableStateObservation sso = new SerializableStateObservation(so);
+
+        SerializableStateObservation previous = lastSso;
+        if (!CompetitionParameters.DELTA_OBSERVATIONS || sso.phase == SerializableStateObservation.Phase.INIT
+                || ++sinceKeyframe >= CompetitionParameters.KEYFRAME_INTERVAL) {
+            previous = null;
+            sinceKeyframe = 0;
+        }
+        bytes.reset();
+        sso.writeBinary(out, previous);
+        lastSso = sso;
+    }
+
+    /**
+     * Gets the last observation written.
+     * @return the observation, or null if none has been written yet.
+     */
+    public SerializableStateObservation getLastObservation() {
+        return lastSso;
+    }
+
+    /**
+     * Gets the bytes of the last observation written.
+     * @return the buffer with the observation.
+     */
+    public ByteArrayOutputStream getObservationBytes() {
+        return bytes;
+    }
+
+    /**
+     * Gets the number of episodes finished.
+     * @return the number of episodes.
+     */
+    public int getEpisodes() {
+        return episodes;
+    }
+
+    /**
+     * Gets the sum of the scores of the episodes finished.
+     * @return the total score.
+     */
+    public double getTotalScore() {
+        return totalScore;
+    }
+
+    /**
+     * Player that returns the action set by the environment.
+     */
+    private static class EnvironmentPlayer extends Player {
+
+        /**
+         * Action to apply in the next game cycle.
+         */
+        Types.ACTIONS nextAction = Types.ACTIONS.ACTION_NIL;
+
+        @Override
+        public Types.ACTIONS act(StateObservation stateObs, ElapsedCpuTimer elapsedTimer) {
+            return nextAction;
+        }
+
+        @Override
+        public Types.ACTIONS act(StateObservationMulti stateObs, ElapsedCpuTimer elapsedTimer) {
+            return nextAction;
+        }
+    }
+}
@@ -5,11 +5,13 @@ package tracks.singleLearning.utils;
  */
 
 import core.competition.CompetitionParameters;
+import core.game.SerializableStateObservation;
 import ontology.Types.LEARNING_SSO_TYPE;
 
 import java.io.*;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.util.Scanner;
 
 public class SocketComm extends Comm {
@@ -22,6 +24,28 @@ public class SocketComm extends Comm {
     private boolean end;
     private static int THRESHOLD = 60000;
 
+    /**
+     * Binary protocol, used if the client accepts it at the start of the communication.
+     * Each frame is an int with the length of the payload, followed by the payload: the
+     * message id (long), the kind of frame (FRAME_TEXT or FRAME_SSO) and its content.
+     */
+    private boolean binary;
+    private DataInputStream binIn;
+    private DataOutputStream binOut;
+
+    /**
+     * Buffers reused to build the frames sent and to hold the last frame received.
+     */
+    private ByteArrayOutputStream frameBytes;
+    private DataOutputStream frameOut;
+    private byte[] frameIn = new byte[256];
+
+    /**
+     * Last observation sent, and number of observations sent since the last keyframe.
+     */
+    private SerializableStateObservation lastSso;
+    private int sinceKeyframe;
+
     /**
      * Public constructor of the player.
      */
@@ -86,12 +110,84 @@ public class SocketComm extends Comm {
      * @param msg message to send.
      */
     public void commSend(String msg) throws IOException {
+        if (binary) {
+            beginFrame(FRAME_TEXT);
+            frameOut.writeUTF(msg);
+            sendFrame();
+            return;
+        }
         String message = messageId + TOKEN_SEP + msg + lineSep;
         out.format(message);
         out.flush();
         messageId++;
     }
 
+    /**
+     * Sends a state observation to the client: as a binary frame if the binary protocol
+     * is in use, or as JSON otherwise.
+     *
+     * @param sso observation to send.
+     */
+    @Override
+    public void commSend(SerializableStateObservation sso) throws IOException {
+        if (!binary) {
+            super.commSend(sso);
+            return;
+        }
+        SerializableStateObservation previous = lastSso;
+        if (!CompetitionParameters.DELTA_OBSERVATIONS || sso.phase == SerializableStateObservation.Phase.INIT
+                || ++sinceKeyframe >= CompetitionParameters.KEYFRAME_INTERVAL) {
+            previous = null;
+            sinceKeyframe = 0;
+        }
+        beginFrame(FRAME_SSO);
+        sso.writeBinary(frameOut, previous);
+        sendFrame();
+        lastSso = sso;
+    }
+
+    /**
+     * Offers the binary protocol to the client, if enabled.
+     * @return the start message.
+     */
+    @Override
+    protected String startMessage() {
+        if (CompetitionParameters.BINARY_PROTOCOL)
+            return "START" + TOKEN_SEP + BINARY_SCHEMA;
+        return super.startMessage();
+    }
+
+    /**
+     * Starts a new frame to send, writing its header.
+     * @param kind kind of frame.
+     */
+    private void beginFrame(byte kind) throws IOException {
+        frameBytes.reset();
+        frameOut.writeLong(messageId);
+        frameOut.writeByte(kind);
+    }
+
+    /**
+     * Sends the frame built since the last call to beginFrame().
+     */
+    private void sendFrame() throws IOException {
+        binOut.writeInt(frameBytes.size());
+        frameBytes.writeTo(binOut);
+        binOut.flush();
+        messageId++;
+    }
+
+    /**
+     * Switches to the binary protocol, once the client has accepted it.
+     */
+    private void startBinary() throws IOException {
+        binIn = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        binOut = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        frameBytes = new ByteArrayOutputStream(1024);
+        frameOut = new DataOutputStream(frameBytes);
+        binary = true;
+    }
+
     /**
      * Receives a message from the client.
      *
@@ -153,6 +249,8 @@ public class SocketComm extends Comm {
      * @return the response got from the client, or null if no response was received after due time.
      */
     public String commRecv() {
+        if (binary)
+            return recvFrame();
         float timeout = 0;
         String response = null;
         while (timeout < THRESHOLD && response == null)
@@ -180,24 +278,19 @@ public class SocketComm extends Comm {
                 String msg = messageParts[1];
 
                 if (messageParts.length >= 3) {
-                    String ssoType = messageParts[2];
-                    switch (ssoType) {
-                        case "JSON":
-                            this.lastSsoType = LEARNING_SSO_TYPE.JSON;
-                            break;
-                        case "IMAGE":
-                            this.lastSsoType = LEARNING_SSO_TYPE.IMAGE;
-                            break;
-                        case "BOTH":
-                            this.lastSsoType = LEARNING_SSO_TYPE.BOTH;
-                            break;
-                        default:
-                            System.err.println("SocketComm: commRecv(): This should never happen.");
-                            break;
-                    }
+                    setSsoType(messageParts[2]);
                 }
 
                 if (receivedID == (messageId - 1)) {
+                    if (messageParts.length >= 4 && messageParts[3].equals(BINARY_SCHEMA)) {
+                        //The client accepted the binary protocol: it is used from the next message.
+                        try {
+                            startBinary();
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                            return null;
+                        }
+                    }
                     return msg.trim();
                 } else if (receivedID < (messageId - 1)) {
                     //Previous message, ignore and keep waiting.
@@ -215,4 +308,66 @@ public class SocketComm extends Comm {
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Receives a message from the client through the binary protocol. Replies of the
+     * client are text frames, with the same content as the lines of the text protocol
+     * (without the message id, which is in the frame header).
+     *
+     * @return the response got from the client, or null if the connection failed.
+     */
+    private String recvFrame() {
+        try {
+            while (true) {
+                int length = binIn.readInt();
+                if (length > frameIn.length)
+                    frameIn = new byte[Math.max(length, frameIn.length * 2)];
+                binIn.readFully(frameIn, 0, length);
+                DataInputStream frame = new DataInputStream(new ByteArrayInputStream(frameIn, 0, length));
+
+                long receivedID = frame.readLong();
+                byte kind = frame.readByte();
+                if (receivedID < (messageId - 1))
+                    continue; //Previous message, ignore and keep waiting.
+                if (receivedID > (messageId - 1)) {
+                    System.err.println("SocketComm: commRecv: Communication Error! A message from the future!");
+                    return null;
+                }
+                if (kind != FRAME_TEXT) {
+                    System.err.println("SocketComm: commRecv(): unexpected frame kind " + kind);
+                    return null;
+                }
+
+                String messageParts[] = frame.readUTF().split(TOKEN_SEP);
+                if (messageParts.length >= 2) {
+                    setSsoType(messageParts[1]);
+                }
+                return messageParts[0].trim();
+            }
+        } catch (IOException e) {
+            System.err.println("SocketComm: commRecv: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Sets the type of observation requested by the client.
+     * @param ssoType name of the type.
+     */
+    private void setSsoType(String ssoType) {
+        switch (ssoType) {
+            case "JSON":
+                this.lastSsoType = LEARNING_SSO_TYPE.JSON;
+                break;
+            case "IMAGE":
+                this.lastSsoType = LEARNING_SSO_TYPE.IMAGE;
+                break;
+            case "BOTH":
+                this.lastSsoType = LEARNING_SSO_TYPE.BOTH;
+                break;
+            default:
+                System.err.println("SocketComm: commRecv(): This should never happen.");
+                break;
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+package tracks.singlePlayer.advanced.parallelMCTS;
+
+import java.util.Random;
+
+import core.game.StateObservation;
+import tools.ElapsedCpuTimer;
+import tracks.singlePlayer.advanced.sampleMCTS.SingleMCTSPlayer;
+
+/**
+ * MCTS UCT agent that runs one search per available processor (root parallelization,
+ * see ParallelMCTSPlayer).
+ */
+public class Agent extends tracks.singlePlayer.advanced.sampleMCTS.Agent {
+
+    /**
+     * Number of searches run in parallel.
+     */
+    public static final int NUM_THREADS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Public constructor with state observation and time due.
+     * @param so state observation of the current game.
+     * @param elapsedTimer Timer for the controller creation.
+     */
+    public Agent(StateObservation so, ElapsedCpuTimer elapsedTimer)
+    {
+        super(so, elapsedTimer);
+    }
+
+    @Override
+    public SingleMCTSPlayer getPlayer(StateObservation so, ElapsedCpuTimer elapsedTimer) {
+        return new ParallelMCTSPlayer(new Random(), num_actions, actions, NUM_THREADS);
+    }
+
+    /**
+     * Stops the threads of the searches when the game is over.
+     * @param stateObs the game state at the end of the game
+     * @param elapsedCpuTimer timer when this method is meant to finish.
+     */
+    @Override
+    public void result(StateObservation stateObs, ElapsedCpuTimer elapsedCpuTimer)
+    {
+        ((ParallelMCTSPlayer) mctsPlayer).shutdown();
+    }
+}
@@ -0,0 +1,171 @@
+package tracks.singlePlayer.advanced.parallelMCTS;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import core.game.StateObservation;
+import core.logging.Logger;
+import core.termination.Termination;
+import ontology.Types;
+import tools.ElapsedCpuTimer;
+import tracks.singlePlayer.advanced.sampleMCTS.SingleMCTSPlayer;
+import tracks.singlePlayer.advanced.sampleMCTS.SingleTreeNode;
+
+/**
+ * Root parallel MCTS: runs an independent MCTS search (see SingleTreeNode) in each thread,
+ * each one from its own copy of the current state, and merges the statistics of the
+ * actions of their roots to pick the action to take.
+ */
+public class ParallelMCTSPlayer extends SingleMCTSPlayer
+{
+    /**
+     * Time (in ms) of the budget kept to merge the searches and return the action.
+     */
+    public static final int MERGE_TIME = 2;
+
+    /**
+     * Number of searches run in parallel.
+     */
+    private int numThreads;
+
+    /**
+     * Threads that run the searches, created on the first call to run().
+     */
+    private ExecutorService workers;
+
+    /**
+     * Roots of the trees of the searches, and their random generators.
+     */
+    private SingleTreeNode[] roots;
+    private Random[] rnds;
+
+    public ParallelMCTSPlayer(Random a_rnd, int num_actions, Types.ACTIONS[] actions, int numThreads)
+    {
+        super(a_rnd, num_actions, actions);
+        this.numThreads = numThreads;
+        roots = new SingleTreeNode[numThreads];
+        rnds = new Random[numThreads];
+        for(int i = 0; i < numThreads; ++i)
+            rnds[i] = new Random(a_rnd.nextLong());
+    }
+
+    /**
+     * Inits the trees of all the searches with the new observation state in their roots.
+     * @param a_gameState current state of the game.
+     */
+    @Override
+    public void init(StateObservation a_gameState)
+    {
+        //Copying a state modifies it (it can't modify the sprites it shares with the copy
+        //anymore), so all the copies are made here, before the searches start. Each search
+        //has its own effects and terminations.
+        for(int i = 0; i < numThreads; ++i)
+        {
+            roots[i] = new SingleTreeNode(rnds[i], num_actions, actions);
+            roots[i].rootState = a_gameState.copyForThread();
+        }
+        m_root = roots[0];
+    }
+
+    /**
+     * Runs the searches in parallel to decide the action to take. It does not reset the trees.
+     * Each search measures the CPU time of its own thread, with the time remaining when called.
+     * @param elapsedTimer Timer when the action returned is due.
+     * @return the action to execute in the game.
+     */
+    @Override
+    public int run(ElapsedCpuTimer elapsedTimer)
+    {
+        if(workers == null)
+            workers = Executors.newFixedThreadPool(numThreads, r -> {
+                Thread worker = new Thread(r, "ParallelMCTS");
+                worker.setDaemon(true);
+                return worker;
+            });
+
+        //The searches simulate the game with the logger and counter terminations of this
+        //thread (see ArcadeMachine.runGamesParallel()). The states carry their registry.
+        final long budget = elapsedTimer.remainingTimeMillis() - MERGE_TIME;
+        final Logger logger = Logger.getInstance();
+        final boolean canEnd = Termination.canEnd();
+
+        ArrayList<Future<?>> searches = new ArrayList<Future<?>>();
+        for(SingleTreeNode root : roots)
+        {
+            searches.add(workers.submit(() -> {
+                Logger.setThreadInstance(logger);
+                Termination.setCanEnd(canEnd);
+
+                ElapsedCpuTimer searchTimer = new ElapsedCpuTimer();
+                searchTimer.setMaxTimeMillis(budget);
+                root.mctsSearch(searchTimer);
+            }));
+        }
+
+        //All searches must finish before merging them, even if this thread is interrupted.
+        boolean interrupted = false;
+        for(Future<?> search : searches)
+        {
+            while(true)
+            {
+                try {
+                    search.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw new RuntimeException(e.getCause());
+                }
+            }
+        }
+        if(interrupted)
+            Thread.currentThread().interrupt();
+
+        //Determine the best action to take and return it.
+        m_root = mergeRoots();
+        return m_root.mostVisitedAction();
+    }
+
+    /**
+     * Creates a root with the children of the roots of all the searches: the visits and
+     * values of each action are added up.
+     * @return the merged root.
+     */
+    private SingleTreeNode mergeRoots()
+    {
+        SingleTreeNode merged = new SingleTreeNode(m_rnd, num_actions, actions);
+        merged.rootState = roots[0].rootState;
+        for(SingleTreeNode root : roots)
+        {
+            merged.nVisits += root.nVisits;
+            merged.totValue += root.totValue;
+            for(int i = 0; i < num_actions; ++i)
+            {
+                SingleTreeNode child = root.children[i];
+                if(child == null)
+                    continue;
+                if(merged.children[i] == null)
+                    merged.children[i] = new SingleTreeNode(merged, i, m_rnd, num_actions, actions);
+                merged.children[i].nVisits += child.nVisits;
+                merged.children[i].totValue += child.totValue;
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Stops the threads of the searches. They are created again if run() is called later.
+     */
+    public void shutdown()
+    {
+        if(workers != null)
+        {
+            workers.shutdown();
+            workers = null;
+        }
+    }
+}
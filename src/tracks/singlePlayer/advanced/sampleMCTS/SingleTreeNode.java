@@ -29,6 +29,11 @@ public class SingleTreeNode
 
     public StateObservation rootState;
 
+    /**
+     * State of the current iteration, overwritten with a copy of rootState in each one.
+     */
+    private StateObservation iterationState;
+
     public SingleTreeNode(Random rnd, int num_actions, Types.ACTIONS[] actions) {
         this(null, -1, rnd, num_actions, actions);
     }
@@ -59,7 +64,11 @@ public class SingleTreeNode
         while(remaining > 2*avgTimeTaken && remaining > remainingLimit){
         //while(numIters < Agent.MCTS_ITERATIONS){
 
-            StateObservation state = rootState.copy();
+            StateObservation state = iterationState;
+            if(state == null)
+                state = iterationState = rootState.copy();
+            else
+                rootState.copyInto(state);
 
             ElapsedCpuTimer elapsedTimerIteration = new ElapsedCpuTimer();
             SingleTreeNode selected = treePolicy(state);
@@ -1,11 +1,13 @@
 package tracks.singlePlayer.advanced.sampleRHEA;
 
 import core.game.StateObservation;
+import core.game.StateObservationPool;
 import core.player.AbstractPlayer;
 import ontology.Types;
 import tools.ElapsedCpuTimer;
 import tracks.singlePlayer.tools.Heuristics.StateHeuristic;
 import tracks.singlePlayer.tools.Heuristics.WinScoreHeuristic;
+import tracks.singlePlayer.tools.rolloutCache.RolloutCache;
 
 import java.util.*;
 
@@ -20,6 +22,7 @@ public class Agent extends AbstractPlayer {
     private int MUTATION = 1;
     private int TOURNAMENT_SIZE = 2;
     private int ELITISM = 1;
+    private int MAX_CACHED_STATES = 2000;
     private StateHeuristic heuristic;
 
     // Constants
@@ -34,6 +37,8 @@ public class Agent extends AbstractPlayer {
     private int N_ACTIONS;
     private HashMap<Integer, Types.ACTIONS> action_mapping;
     private Random randomGenerator;
+    private RolloutCache cache = new RolloutCache(MAX_CACHED_STATES);
+    private StateObservationPool<StateObservation> pool = new StateObservationPool<StateObservation>();
 
     // Budgets
     private ElapsedCpuTimer timer;
@@ -90,7 +95,8 @@ public class Agent extends AbstractPlayer {
         if (REEVALUATE) {
             for (int i = 0; i < ELITISM; i++) {
                 if (remaining > 2*avgTimeTakenEval && remaining > BREAK_MS) { // if enough time to evaluate one more individual
-                    evaluate(population[i], heuristic, stateObs);
+                    // Re-evaluations take a new sample of the rollout, not the cached one.
+                    evaluate(population[i], heuristic, stateObs, false);
                 } else {keepIterating = false;}
             }
         }
@@ -149,19 +155,42 @@ public class Agent extends AbstractPlayer {
      * @return - value of last state reached
      */
     private double evaluate(Individual individual, StateHeuristic heuristic, StateObservation state) {
+        return evaluate(individual, heuristic, state, true);
+    }
+
+    /**
+     * Evaluates an individual (see above), optionally resuming the rollout from the states cached
+     * by previous evaluations that applied the same first actions.
+     * @param individual - individual to be valued
+     * @param heuristic - heuristic to be used for state evaluation
+     * @param state - current state, root of rollouts
+     * @param resume - true to resume from (and add to) the rollout cache, false to roll from the root
+     * @return - value of last state reached
+     */
+    private double evaluate(Individual individual, StateHeuristic heuristic, StateObservation state, boolean resume) {
 
         ElapsedCpuTimer elapsedTimerIterationEval = new ElapsedCpuTimer();
 
-        StateObservation st = state.copy();
+        // Resume from the deepest state cached for the first actions of the individual.
+        StateObservation st;
+        int first = 0;
+        if (resume) {
+            st = cache.copyDeepest(individual.actions, SIMULATION_DEPTH, pool);
+            first = cache.getResumeDepth();
+        } else {
+            st = pool.copy(state);
+        }
         int i;
         double acum = 0, avg;
-        for (i = 0; i < SIMULATION_DEPTH; i++) {
+        for (i = first; i < SIMULATION_DEPTH; i++) {
             if (! st.isGameOver()) {
                 ElapsedCpuTimer elapsedTimerIteration = new ElapsedCpuTimer();
                 st.advance(action_mapping.get(individual.actions[i]));
+                if (resume)
+                    cache.store(individual.actions, i+1, st);
 
                 acum += elapsedTimerIteration.elapsedMillis();
-                avg = acum / (i+1);
+                avg = acum / (i+1-first);
                 remaining = timer.remainingTimeMillis();
                 if (remaining < 2*avg || remaining < BREAK_MS) break;
             } else {
@@ -170,6 +199,8 @@ public class Agent extends AbstractPlayer {
         }
 
         individual.value = heuristic.evaluateState(st);
+        // The rollout state is only used to evaluate the individual (the cache keeps copies).
+        pool.release(st);
 
         numEvals++;
         acumTimeTakenEval += (elapsedTimerIterationEval.elapsedMillis());
@@ -235,6 +266,7 @@ public class Agent extends AbstractPlayer {
             k++;
         }
         action_mapping.put(k, Types.ACTIONS.ACTION_NIL);
+        cache.reset(stateObs, N_ACTIONS);
 
         population = new Individual[POPULATION_SIZE];
         nextPop = new Individual[POPULATION_SIZE];
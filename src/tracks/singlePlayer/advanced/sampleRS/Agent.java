@@ -6,6 +6,7 @@ import ontology.Types;
 import tools.ElapsedCpuTimer;
 import tracks.singlePlayer.tools.Heuristics.StateHeuristic;
 import tracks.singlePlayer.tools.Heuristics.WinScoreHeuristic;
+import tracks.singlePlayer.tools.rolloutCache.RolloutCache;
 
 import java.util.*;
 
@@ -13,6 +14,7 @@ public class Agent extends AbstractPlayer {
 
     // Parameters
     private int SIMULATION_DEPTH = 10;
+    private int MAX_CACHED_STATES = 2000;
     private StateHeuristic heuristic;
 
     // Constants
@@ -24,6 +26,7 @@ public class Agent extends AbstractPlayer {
     private int NUM_INDIVIDUALS;
     private HashMap<Integer, Types.ACTIONS> action_mapping;
     private Random randomGenerator;
+    private RolloutCache cache = new RolloutCache(MAX_CACHED_STATES);
 
     // Budget
     private ElapsedCpuTimer timer;
@@ -74,16 +77,19 @@ public class Agent extends AbstractPlayer {
 
         ElapsedCpuTimer elapsedTimerIterationEval = new ElapsedCpuTimer();
 
-        StateObservation st = state.copy();
+        // Resume from the deepest state cached for the first actions of the individual.
+        StateObservation st = cache.copyDeepest(individual.actions, SIMULATION_DEPTH);
+        int first = cache.getResumeDepth();
         int i;
-        for (i = 0; i < SIMULATION_DEPTH; i++) {
+        for (i = first; i < SIMULATION_DEPTH; i++) {
             double acum = 0, avg;
             if (! st.isGameOver()) {
                 ElapsedCpuTimer elapsedTimerIteration = new ElapsedCpuTimer();
                 st.advance(action_mapping.get(individual.actions[i]));
+                cache.store(individual.actions, i+1, st);
 
                 acum += elapsedTimerIteration.elapsedMillis();
-                avg = acum / (i+1);
+                avg = acum / (i+1-first);
                 remaining = timer.remainingTimeMillis();
                 if (remaining < 2*avg || remaining < BREAK_MS) break;
             } else {
@@ -117,6 +123,7 @@ public class Agent extends AbstractPlayer {
             k++;
         }
         action_mapping.put(k, Types.ACTIONS.ACTION_NIL);
+        cache.reset(stateObs, n_ACTIONS);
 
         NUM_INDIVIDUALS = 0;
 
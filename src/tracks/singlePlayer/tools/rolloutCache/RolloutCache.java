@@ -0,0 +1,133 @@
+package tracks.singlePlayer.tools.rolloutCache;
+
+import core.game.StateObservation;
+import core.game.StateObservationPool;
+
+/**
+ * Prefix tree of the states reached by rollouts from a root state, indexed by the
+ * sequence of actions applied. Agents that evaluate action sequences sharing their
+ * first actions (e.g. the individuals of an evolutionary algorithm) can resume each
+ * rollout from the deepest cached state, instead of advancing the root state again.
+ *
+ * In stochastic games, each cached state is one sample of the outcome of its actions,
+ * and all the rollouts that share those actions continue from that sample.
+ * The number of states cached is bounded: when it is reached, new states are not cached.
+ */
+public class RolloutCache {
+
+    /**
+     * Node of the tree: the state reached by the actions from the root to it.
+     */
+    private static class Node {
+        StateObservation state;
+        Node[] children;
+
+        Node(StateObservation state, int numActions) {
+            this.state = state;
+            this.children = new Node[numActions];
+        }
+    }
+
+    /**
+     * Maximum number of states cached (not counting the root).
+     */
+    private int maxStates;
+
+    /**
+     * Number of actions available at each state.
+     */
+    private int numActions;
+
+    /**
+     * Root of the tree, and number of states cached.
+     */
+    private Node root;
+    private int numStates;
+
+    /**
+     * Depth of the state returned by the last call to copyDeepest().
+     */
+    private int resumeDepth;
+
+    /**
+     * Creates an empty cache.
+     * @param maxStates maximum number of states cached.
+     */
+    public RolloutCache(int maxStates) {
+        this.maxStates = maxStates;
+    }
+
+    /**
+     * Removes all the states cached, and sets the root state of the rollouts.
+     * @param rootState state the rollouts start from.
+     * @param numActions number of actions (actions are indexes from 0 to numActions-1).
+     */
+    public void reset(StateObservation rootState, int numActions) {
+        this.numActions = numActions;
+        root = new Node(rootState, numActions);
+        numStates = 0;
+    }
+
+    /**
+     * Returns a copy of the deepest state cached for a prefix of a sequence of actions.
+     * The length of the prefix can be obtained with getResumeDepth().
+     * @param actions sequence of actions.
+     * @param length number of actions of the sequence to consider.
+     * @return a copy of the state, that can be advanced with the rest of the actions.
+     */
+    public StateObservation copyDeepest(int[] actions, int length) {
+        return copyDeepest(actions, length, null);
+    }
+
+    /**
+     * Returns a copy of the deepest state cached for a prefix of a sequence of actions, as
+     * copyDeepest(actions, length) does, made by a pool of state observations.
+     * @param actions sequence of actions.
+     * @param length number of actions of the sequence to consider.
+     * @param pool pool that makes the copy, or null to make a new one.
+     * @return a copy of the state, that can be advanced with the rest of the actions.
+     */
+    public StateObservation copyDeepest(int[] actions, int length, StateObservationPool<StateObservation> pool) {
+        Node node = root;
+        int depth = 0;
+        while (depth < length && node.children[actions[depth]] != null)
+            node = node.children[actions[depth++]];
+        resumeDepth = depth;
+        return pool == null ? node.state.copy() : pool.copy(node.state);
+    }
+
+    /**
+     * Gets the number of actions of the state returned by the last call to copyDeepest().
+     * @return the depth of the last state resumed.
+     */
+    public int getResumeDepth() {
+        return resumeDepth;
+    }
+
+    /**
+     * Caches (a copy of) the state reached by the first actions of a sequence. The states
+     * reached by the previous actions must be cached already (see copyDeepest()).
+     * @param actions sequence of actions.
+     * @param depth number of actions applied to reach the state.
+     * @param state state reached.
+     */
+    public void store(int[] actions, int depth, StateObservation state) {
+        if (numStates >= maxStates)
+            return;
+        Node node = root;
+        for (int i = 0; i < depth - 1 && node != null; i++)
+            node = node.children[actions[i]];
+        if (node == null || node.children[actions[depth - 1]] != null)
+            return;
+        node.children[actions[depth - 1]] = new Node(state.copy(), numActions);
+        numStates++;
+    }
+
+    /**
+     * Gets the number of states cached.
+     * @return the number of states.
+     */
+    public int size() {
+        return numStates;
+    }
+}